@@ -0,0 +1,110 @@
+import java.util.Arrays;
+
+//One local alignment: score, the aligned stretch of each sequence
+//(0-based, end exclusive) and the path as run-length ops, CIGAR style:
+//'=' match, 'X' mismatch, 'D' a residue of X against a gap, 'I' a residue
+//of Y against a gap (Y reads as the query, X as the reference).
+//ops[k] = length << 2 | op, first column first. The gapped rows ('-' for a
+//gap) are only kept when the engine built them anyway (Hirschberg,
+//BandedSW); AlignmentRenderer draws them from ops and the sequences.
+class Alignment {
+    static final int MATCH = 0;
+    static final int MISMATCH = 1;
+    static final int INS = 2;
+    static final int DEL = 3;
+    static final String CODES = "=XID";
+
+    int score;
+    int xStart, xEnd;
+    int yStart, yEnd;
+    int[] ops;
+    int matches;
+    String row1, row2;
+
+    public Alignment(int score, int xStart, int xEnd, int yStart, int yEnd, int[] ops, int matches) {
+        this.score = score;
+        this.xStart = xStart;
+        this.xEnd = xEnd;
+        this.yStart = yStart;
+        this.yEnd = yEnd;
+        this.ops = ops;
+        this.matches = matches;
+    }
+
+    //from the gapped rows; ops and matches are read off them
+    public Alignment(int score, int xStart, int xEnd, int yStart, int yEnd, String row1, String row2) {
+        this(score, xStart, xEnd, yStart, yEnd, null, 0);
+        this.row1 = row1;
+        this.row2 = row2;
+        Ops b = new Ops();
+        for(int k=0; k<row1.length(); k++){
+            char a = row1.charAt(k), c = row2.charAt(k);
+            int op = a == '-' ? INS : c == '-' ? DEL : a == c ? MATCH : MISMATCH;
+            b.add(op);
+            if(op == MATCH)
+                this.matches++;
+        }
+        this.ops = b.toArray(false);
+    }
+
+    //run-length op list built one column at a time, in either direction
+    static final class Ops {
+        private int[] runs = new int[16];
+        private int n;
+
+        void add(int op){
+            if(n > 0 && (runs[n-1] & 3) == op){
+                runs[n-1] += 4;
+                return;
+            }
+            if(n == runs.length)
+                runs = Arrays.copyOf(runs, 2*n);
+            runs[n++] = 1 << 2 | op;
+        }
+
+        //exact-size copy; reversed for a path collected end first
+        int[] toArray(boolean reversed){
+            int[] res = new int[n];
+            for(int k=0; k<n; k++)
+                res[k] = runs[reversed ? n-1-k : k];
+            return res;
+        }
+    }
+
+    @Override
+    public String toString() {
+        if(this.row1 != null)
+            return "seq1: " + this.row1 + "\nseq2: " + this.row2;
+        return this.score + " (" + this.xStart + ".." + this.xEnd + ", " + this.yStart + ".." + this.yEnd + ") " + cigar();
+    }
+    public int getScore(){
+        return this.score;
+    }
+    public String getRow1(){
+        return this.row1;
+    }
+    public String getRow2(){
+        return this.row2;
+    }
+    public int[] getOps(){
+        return this.ops;
+    }
+    //alignment columns, gaps included
+    public int length(){
+        int len = 0;
+        for(int op : ops)
+            len += op >>> 2;
+        return len;
+    }
+    //matching columns over all columns, 0 for an empty alignment
+    public double identity(){
+        int len = length();
+        return len == 0 ? 0 : (double)matches/len;
+    }
+    public String cigar(){
+        StringBuilder sb = new StringBuilder(4*ops.length);
+        for(int op : ops)
+            sb.append(op >>> 2).append(CODES.charAt(op & 3));
+        return sb.toString();
+    }
+}
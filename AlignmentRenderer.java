@@ -0,0 +1,60 @@
+//Text views of an Alignment, for people; the alignment itself is just the
+//coordinates and ops, so nothing here runs unless something gets printed
+class AlignmentRenderer {
+    //the two gapped rows, '-' for a gap
+    public static String[] rows(Alignment a, CharSequence X, CharSequence Y){
+        int len = a.length();
+        char[] r1 = new char[len], r2 = new char[len];
+        int i = a.xStart, j = a.yStart, k = 0;
+        for(int op : a.ops){
+            for(int run=op>>>2; run>0; run--, k++){
+                switch(op & 3){
+                    case Alignment.INS:
+                        r1[k] = '-'; r2[k] = Y.charAt(j++);
+                        break;
+                    case Alignment.DEL:
+                        r1[k] = X.charAt(i++); r2[k] = '-';
+                        break;
+                    default:
+                        r1[k] = X.charAt(i++); r2[k] = Y.charAt(j++);
+                }
+            }
+        }
+        return new String[]{new String(r1), new String(r2)};
+    }
+
+    //seq1/seq2 lines, the way Alignment.toString prints built rows
+    public static String pair(Alignment a, CharSequence X, CharSequence Y){
+        String[] r = rows(a, X, Y);
+        return "seq1: " + r[0] + "\nseq2: " + r[1];
+    }
+
+    //width columns per block, 1-based start/end coordinates around each row
+    //and a '|' line under the matches
+    public static String blocks(Alignment a, CharSequence X, CharSequence Y, int width){
+        if(width < 1)
+            throw new IllegalArgumentException("width must be positive: " + width);
+        String[] r = rows(a, X, Y);
+        int pad = String.valueOf(Math.max(a.xEnd, a.yEnd)).length();
+        StringBuilder sb = new StringBuilder();
+        int i = a.xStart, j = a.yStart;
+        for(int from=0; from<r[0].length(); from+=width){
+            int to = Math.min(r[0].length(), from + width);
+            String s1 = r[0].substring(from, to), s2 = r[1].substring(from, to);
+            int di = 0, dj = 0;
+            StringBuilder mid = new StringBuilder(to - from);
+            for(int k=0; k<s1.length(); k++){
+                char c1 = s1.charAt(k), c2 = s2.charAt(k);
+                if(c1 != '-') di++;
+                if(c2 != '-') dj++;
+                mid.append(c1 != '-' && c1 == c2 ? '|' : ' ');
+            }
+            sb.append(String.format("seq1 %" + pad + "d %s %d%n", i+1, s1, i+di));
+            sb.append(String.format("     %" + pad + "s %s%n", "", mid));
+            sb.append(String.format("seq2 %" + pad + "d %s %d%n%n", j+1, s2, j+dj));
+            i += di;
+            j += dj;
+        }
+        return sb.toString();
+    }
+}
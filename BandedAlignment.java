@@ -0,0 +1,15 @@
+//Alignment from BandedSW, plus whether its path ran along the band edge;
+//if it did the band may have cut off a better path, so widen and retry
+class BandedAlignment extends Alignment {
+    boolean bandEdge;
+
+    public BandedAlignment(int score, int xStart, int xEnd, int yStart, int yEnd,
+                           String row1, String row2, boolean bandEdge) {
+        super(score, xStart, xEnd, yStart, yEnd, row1, row2);
+        this.bandEdge = bandEdge;
+    }
+
+    public boolean touchesBandEdge(){
+        return this.bandEdge;
+    }
+}
@@ -0,0 +1,92 @@
+//Banded Smith-Waterman: only cells with |(j - i) - diagonal| <= width are
+//filled, everything else counts as unreachable. Row i is stored as the
+//2*width+1 cells of the band (slot k = j - i - diagonal + width), so memory
+//is (m+1)*(2*width+1) rather than (m+1)*(n+1). Recurrence, arrow ties and
+//the best cell (row-major first) are the same as swMatrix; the traceback
+//walks back from the best cell until the score drops to zero. Gaps must be
+//linear (gapOpen == gapExtend); rows read query-profile rows like swScore.
+class BandedSW {
+    static final int NONE = Integer.MIN_VALUE/2;//outside the band
+
+    public static BandedAlignment align(CharSequence X, CharSequence Y, int diagonal, int width){
+        return align(X, Y, ScoringScheme.LINEAR, diagonal, width);
+    }
+
+    public static BandedAlignment align(CharSequence X, CharSequence Y, ScoringScheme s, int diagonal, int width){
+        if(!s.isLinear())
+            throw new IllegalArgumentException("BandedSW needs linear gaps (gapOpen == gapExtend): " + s);
+        if(width < 0)
+            throw new IllegalArgumentException("band width must not be negative: " + width);
+        int m = X.length(), n = Y.length(), w = 2*width+1;
+        int[] score = new int[(m+1)*w];
+        byte[] dir = new byte[(m+1)*w];
+        int[][] prof = s.profile(Y);
+        int gap = -s.gapOpen;
+        int best = 0, bestI = 0, bestJ = 0;
+
+        //row 0 is all border zeros; band slots past the matrix stay unused
+        for(int i=1; i<=m; i++){
+            int[] p = prof[s.code(X.charAt(i-1))];
+            int base = i*w, up = (i-1)*w;
+            int jlo = Math.max(0, i+diagonal-width), jhi = Math.min(n, i+diagonal+width);
+            for(int j=jlo; j<=jhi; j++){
+                int k = j-i-diagonal+width;
+                if(j == 0){//column 0 border
+                    score[base+k] = 0;
+                    continue;
+                }
+                //diag shares slot k one row up, up is slot k+1, left is slot k-1
+                int prevDiag = score[up+k] + p[j-1];
+                int prevRow = k+1 < w ? score[up+k+1] + gap : NONE;
+                int prevCol = j-1 >= jlo ? score[base+k-1] + gap : NONE;
+
+                int max;
+                byte arrow;
+                if(prevDiag >= prevRow && prevDiag >= prevCol){
+                    max = prevDiag; arrow = ScoreMatrix.UL;
+                }
+                else if(prevRow >= prevCol){
+                    max = prevRow; arrow = ScoreMatrix.U;
+                }
+                else {
+                    max = prevCol; arrow = ScoreMatrix.L;
+                }
+                if(max < 0) max = 0;
+                score[base+k] = max;
+                dir[base+k] = arrow;
+                if(max > best){
+                    best = max; bestI = i; bestJ = j;
+                }
+            }
+        }
+
+        //walk back inside the band
+        char[] r1 = new char[2*(bestI+bestJ)+2], r2 = new char[r1.length];
+        int len = 0, i = bestI, j = bestJ;
+        boolean edge = false;
+        while(i > 0 && j > 0){
+            int k = j-i-diagonal+width;
+            if(score[i*w+k] == 0)
+                break;
+            if(k == 0 || k == w-1)
+                edge = true;
+            byte arrow = dir[i*w+k];
+            if(arrow == ScoreMatrix.UL){
+                r1[len] = X.charAt(i-1); r2[len] = Y.charAt(j-1); i--; j--;
+            }
+            else if(arrow == ScoreMatrix.U){
+                r1[len] = X.charAt(i-1); r2[len] = '-'; i--;
+            }
+            else {
+                r1[len] = '-'; r2[len] = Y.charAt(j-1); j--;
+            }
+            len++;
+        }
+        StringBuilder row1 = new StringBuilder(len), row2 = new StringBuilder(len);
+        for(int t=len-1; t>=0; t--){
+            row1.append(r1[t]);
+            row2.append(r2[t]);
+        }
+        return new BandedAlignment(best, i, bestI, j, bestJ, row1.toString(), row2.toString(), edge);
+    }
+}
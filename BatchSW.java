@@ -0,0 +1,215 @@
+import java.util.Arrays;
+import java.util.List;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+//Inter-sequence Smith-Waterman on the incubating Vector API: one query
+//against many short targets, a different target in every lane (SWIPE
+//style), instead of striping one query across the lanes like StripedSW.
+//All lanes walk the same cell (i, j), target row i against query column j,
+//so the recurrence is plain swScore with vectors for ints and every lane
+//sees its own rows in row-major order. Per row a small score profile holds,
+//for each residue the query uses, the score against each lane's target
+//residue; lanes whose target has ended score a negative pad, which can
+//never make a cell beat that lane's best.
+//Targets are sorted by length and cut into groups of lanes, so a group runs
+//for its longest member and padding stays small. A group uses 16-bit lanes
+//when the scheme's scores and gap costs fit a short and its cells cannot
+//pass Short.MAX_VALUE, 32-bit lanes otherwise.
+//Results are those of swScore(target, query, scheme): score and the first
+//best cell in row-major order. Not thread safe: scratch rows are reused.
+class BatchSW {
+    private final int n;
+    private final ScoringScheme scheme;
+    private final int[] used;//codes the query uses
+    private final int[] q;//query column -> index into used
+    private final int gapOpen, gapExtend, maxScore, padScore;
+
+    private short[] h16, e16, prof16;
+    private int[] h32, e32, prof32;
+
+    public BatchSW(CharSequence query){
+        this(query, ScoringScheme.LINEAR);
+    }
+
+    public BatchSW(CharSequence query, ScoringScheme scheme){
+        this.n = query.length();
+        this.scheme = scheme;
+        this.gapOpen = scheme.gapOpen;
+        this.gapExtend = scheme.gapExtend;
+        this.maxScore = scheme.maxScore;
+        this.padScore = Math.min(scheme.minScore, -1);
+        int[] slot = new int[scheme.size()];
+        Arrays.fill(slot, -1);
+        int[] u = new int[scheme.size()];
+        int k = 0;
+        this.q = new int[n];
+        for(int j=0; j<n; j++){
+            int c = scheme.code(query.charAt(j));
+            if(slot[c] < 0){
+                slot[c] = k;
+                u[k++] = c;
+            }
+            q[j] = slot[c];
+        }
+        this.used = Arrays.copyOf(u, k);
+    }
+
+    public static ScoreResult[] score(CharSequence query, List<? extends CharSequence> targets, ScoringScheme scheme){
+        return new BatchSW(query, scheme).align(targets);
+    }
+
+    //best local score of every target (rows) against the query (columns),
+    //in the order given
+    public ScoreResult[] align(List<? extends CharSequence> targets){
+        int count = targets.size();
+        ScoreResult[] res = new ScoreResult[count];
+        long[] order = new long[count];//length << 32 | index
+        for(int t=0; t<count; t++)
+            order[t] = (long)targets.get(t).length() << 32 | t;
+        Arrays.sort(order);
+        int lanes16 = ShortVector.SPECIES_PREFERRED.length(), lanes32 = IntVector.SPECIES_PREFERRED.length();
+        //every profile score, the pad and both gap costs must fit a short
+        boolean fits16 = padScore >= Short.MIN_VALUE && gapOpen <= Short.MAX_VALUE && gapExtend <= Short.MAX_VALUE;
+        for(int g=0; g<count; ){
+            int end = Math.min(count, g + lanes16);
+            long longest = Math.min(order[end-1] >>> 32, n);
+            if(fits16 && longest*Math.max(maxScore, 0) <= Short.MAX_VALUE)
+                align16(targets, order, g, end, res);
+            else {
+                end = Math.min(count, g + lanes32);
+                align32(targets, order, g, end, res);
+            }
+            g = end;
+        }
+        return res;
+    }
+
+    //score profile of row i: prof[u*lanes + lane] = used[u] against the
+    //lane's target residue i-1, the pad once that target has ended
+    private void profile(CharSequence[] t, int i, int lanes, short[] prof16, int[] prof32){
+        for(int lane=0; lane<lanes; lane++){
+            int[] row = t[lane] != null && i <= t[lane].length() ? scheme.matrix[scheme.code(t[lane].charAt(i-1))] : null;
+            for(int u=0; u<used.length; u++){
+                int v = row == null ? padScore : row[used[u]];
+                if(prof16 != null)
+                    prof16[u*lanes + lane] = (short)v;
+                else
+                    prof32[u*lanes + lane] = v;
+            }
+        }
+    }
+
+    //targets order[from..to) in 16-bit lanes
+    private void align16(List<? extends CharSequence> targets, long[] order, int from, int to, ScoreResult[] res){
+        VectorSpecies<Short> sp = ShortVector.SPECIES_PREFERRED;
+        int lanes = sp.length(), rows = (int)(order[to-1] >>> 32);
+        CharSequence[] t = new CharSequence[lanes];
+        for(int k=from; k<to; k++)
+            t[k-from] = targets.get((int)order[k]);
+        if(h16 == null || h16.length < (n+1)*lanes){
+            h16 = new short[(n+1)*lanes]; e16 = new short[(n+1)*lanes];
+            prof16 = new short[used.length*lanes];
+        }
+        short[] h = h16, e = e16, prof = prof16;
+        Arrays.fill(h, (short)0);
+        Arrays.fill(e, (short)0);
+        ShortVector zero = ShortVector.zero(sp);
+        ShortVector vOpen = ShortVector.broadcast(sp, (short)gapOpen);
+        ShortVector vExt = ShortVector.broadcast(sp, (short)gapExtend);
+        ShortVector vBest = zero;
+        int[] bestI = new int[lanes], bestJ = new int[lanes];
+
+        for(int i=1; i<=rows; i++){
+            profile(t, i, lanes, prof, null);
+            ShortVector vDiag = zero, vLeft = zero, vF = zero, vMax = zero;
+            for(int j=1; j<=n; j++){
+                int o = j*lanes;
+                ShortVector vUp = ShortVector.fromArray(sp, h, o);
+                ShortVector vE = ShortVector.fromArray(sp, e, o).sub(vExt).max(vUp.sub(vOpen)).max(zero);
+                vF = vF.sub(vExt).max(vLeft.sub(vOpen)).max(zero);
+                ShortVector vH = vDiag.add(ShortVector.fromArray(sp, prof, q[j-1]*lanes)).max(vE).max(vF).max(zero);
+                vE.intoArray(e, o);
+                vH.intoArray(h, o);
+                vMax = vMax.max(vH);
+                vDiag = vUp;
+                vLeft = vH;
+            }
+
+            //a lane whose row max beats its best: first column holding it
+            VectorMask<Short> better = vMax.compare(VectorOperators.GT, vBest);
+            if(better.anyTrue()){
+                for(int lane=0; lane<lanes; lane++)
+                    if(better.laneIsSet(lane)){
+                        short rowMax = vMax.lane(lane);
+                        int j = 1;
+                        while(h[j*lanes + lane] != rowMax)
+                            j++;
+                        bestI[lane] = i;
+                        bestJ[lane] = j;
+                    }
+                vBest = vBest.max(vMax);
+            }
+        }
+        for(int k=from; k<to; k++)
+            res[(int)order[k]] = new ScoreResult(vBest.lane(k-from), bestI[k-from], bestJ[k-from]);
+    }
+
+    //targets order[from..to) in 32-bit lanes
+    private void align32(List<? extends CharSequence> targets, long[] order, int from, int to, ScoreResult[] res){
+        VectorSpecies<Integer> sp = IntVector.SPECIES_PREFERRED;
+        int lanes = sp.length(), rows = (int)(order[to-1] >>> 32);
+        CharSequence[] t = new CharSequence[lanes];
+        for(int k=from; k<to; k++)
+            t[k-from] = targets.get((int)order[k]);
+        if(h32 == null || h32.length < (n+1)*lanes){
+            h32 = new int[(n+1)*lanes]; e32 = new int[(n+1)*lanes];
+            prof32 = new int[used.length*lanes];
+        }
+        int[] h = h32, e = e32, prof = prof32;
+        Arrays.fill(h, 0);
+        Arrays.fill(e, 0);
+        IntVector zero = IntVector.zero(sp);
+        IntVector vOpen = IntVector.broadcast(sp, gapOpen);
+        IntVector vExt = IntVector.broadcast(sp, gapExtend);
+        IntVector vBest = zero;
+        int[] bestI = new int[lanes], bestJ = new int[lanes];
+
+        for(int i=1; i<=rows; i++){
+            profile(t, i, lanes, null, prof);
+            IntVector vDiag = zero, vLeft = zero, vF = zero, vMax = zero;
+            for(int j=1; j<=n; j++){
+                int o = j*lanes;
+                IntVector vUp = IntVector.fromArray(sp, h, o);
+                IntVector vE = IntVector.fromArray(sp, e, o).sub(vExt).max(vUp.sub(vOpen)).max(zero);
+                vF = vF.sub(vExt).max(vLeft.sub(vOpen)).max(zero);
+                IntVector vH = vDiag.add(IntVector.fromArray(sp, prof, q[j-1]*lanes)).max(vE).max(vF).max(zero);
+                vE.intoArray(e, o);
+                vH.intoArray(h, o);
+                vMax = vMax.max(vH);
+                vDiag = vUp;
+                vLeft = vH;
+            }
+
+            VectorMask<Integer> better = vMax.compare(VectorOperators.GT, vBest);
+            if(better.anyTrue()){
+                for(int lane=0; lane<lanes; lane++)
+                    if(better.laneIsSet(lane)){
+                        int rowMax = vMax.lane(lane);
+                        int j = 1;
+                        while(h[j*lanes + lane] != rowMax)
+                            j++;
+                        bestI[lane] = i;
+                        bestJ[lane] = j;
+                    }
+                vBest = vBest.max(vMax);
+            }
+        }
+        for(int k=from; k<to; k++)
+            res[(int)order[k]] = new ScoreResult(vBest.lane(k-from), bestI[k-from], bestJ[k-from]);
+    }
+}
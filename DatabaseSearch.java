@@ -0,0 +1,179 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+//One query against every record of a FASTA/FASTQ file.
+//Targets are read off a memory-mapped FastxReader and streamed in batches
+//to a fixed pool; each worker thread keeps its own StripedSW (query
+//profile plus scratch rows), so scoring a pair allocates no matrix at all.
+//Only the k best hits are kept, in a bounded min-heap; for those few a
+//backward pass (swStart) from the best cell finds the start coordinates.
+//Progress and throughput go to the given stream.
+class DatabaseSearch {
+    static final int BATCH = 256;//targets per task
+    static final long REPORT_NANOS = 5_000_000_000L;
+
+    //a scored target waiting in the top-k heap; seq is kept for the final start search
+    private record Candidate(long index, int score, int tEnd, int qEnd, Sequence id, Sequence seq) {}
+
+    //worst first: lower score, then later in the file
+    private static final Comparator<Candidate> WORST_FIRST =
+        Comparator.comparingInt(Candidate::score).thenComparing(Comparator.comparingLong(Candidate::index).reversed());
+
+    public static List<Hit> search(CharSequence query, Path db, int k, int threads, PrintStream progress)
+            throws IOException {
+        return search(query, db, ScoringScheme.LINEAR, k, threads, progress);
+    }
+
+    public static List<Hit> search(CharSequence query, Path db, ScoringScheme scheme, int k, int threads,
+                                   PrintStream progress) throws IOException {
+        if(k < 1)
+            throw new IllegalArgumentException("k must be positive: " + k);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ThreadLocal<StripedSW> engine = ThreadLocal.withInitial(() -> new StripedSW(query, scheme));
+        PriorityQueue<Candidate> top = new PriorityQueue<>(k+1, WORST_FIRST);
+        Semaphore inFlight = new Semaphore(2*threads);
+        List<Future<?>> pending = new ArrayList<>();
+        AtomicLong targets = new AtomicLong(), residues = new AtomicLong();
+        long start = System.nanoTime(), lastReport = start;
+
+        try(FastxReader in = new FastxReader(db)){
+            long index = 0;
+            List<Sequence[]> batch = new ArrayList<>(BATCH);
+            FastxReader.Record rec;
+            while(true){
+                rec = in.next();
+                //the reader reuses its buffers, so each target leaves with its own copy
+                if(rec != null)
+                    batch.add(new Sequence[]{rec.id().copy(), rec.seq().copy()});
+                if(batch.size() == BATCH || (rec == null && !batch.isEmpty())){
+                    List<Sequence[]> work = batch;
+                    long first = index;
+                    index += work.size();
+                    batch = new ArrayList<>(BATCH);
+                    inFlight.acquireUninterruptibly();
+                    pending.add(pool.submit(() -> {
+                        try {
+                            scoreBatch(engine.get(), work, first, k, top, targets, residues);
+                        }
+                        finally {
+                            inFlight.release();
+                        }
+                    }));
+                    //get() on the finished ones first: a batch that failed
+                    //aborts the search here instead of being dropped
+                    for(Iterator<Future<?>> it = pending.iterator(); it.hasNext(); ){
+                        Future<?> f = it.next();
+                        if(f.isDone()){
+                            f.get();
+                            it.remove();
+                        }
+                    }
+                }
+                long now = System.nanoTime();
+                if(progress != null && now - lastReport > REPORT_NANOS){
+                    report(progress, "progress", targets.get(), residues.get(), query.length(), now - start);
+                    lastReport = now;
+                }
+                if(rec == null)
+                    break;
+            }
+            for(Future<?> f : pending)
+                f.get();
+        }
+        catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new IOException("search interrupted", e);
+        }
+        catch(ExecutionException e){
+            throw new IOException("search failed", e.getCause());
+        }
+        finally {
+            pool.shutdownNow();
+        }
+        if(progress != null)
+            report(progress, "done", targets.get(), residues.get(), query.length(), System.nanoTime() - start);
+
+        //start coordinates for the survivors only
+        List<Candidate> best = new ArrayList<>(top);
+        best.sort(WORST_FIRST.reversed());
+        List<Hit> hits = new ArrayList<>(best.size());
+        for(Candidate c : best){
+            int[] st = SmithWaterman.swStart(c.seq(), query, scheme, c.tEnd(), c.qEnd(), c.score());
+            hits.add(new Hit(c.id().toString(), c.index(), c.score(), st[0], c.tEnd(), st[1], c.qEnd()));
+        }
+        return hits;
+    }
+
+    //score one batch, keep its local top k, then merge into the shared heap
+    private static void scoreBatch(StripedSW sw, List<Sequence[]> work, long first, int k,
+                                   PriorityQueue<Candidate> top, AtomicLong targets, AtomicLong residues){
+        PriorityQueue<Candidate> local = new PriorityQueue<>(k+1, WORST_FIRST);
+        long res = 0;
+        for(int t=0; t<work.size(); t++){
+            Sequence id = work.get(t)[0], seq = work.get(t)[1];
+            res += seq.length();
+            ScoreResult r = sw.align(seq);
+            if(r.score() == 0)
+                continue;
+            offer(local, new Candidate(first+t, r.score(), r.i(), r.j(), id, seq), k);
+        }
+        synchronized(top){
+            for(Candidate c : local)
+                offer(top, c, k);
+        }
+        targets.addAndGet(work.size());
+        residues.addAndGet(res);
+    }
+
+    private static void offer(PriorityQueue<Candidate> heap, Candidate c, int k){
+        if(heap.size() < k)
+            heap.add(c);
+        else if(WORST_FIRST.compare(c, heap.peek()) > 0){
+            heap.poll();
+            heap.add(c);
+        }
+    }
+
+    private static void report(PrintStream out, String what, long targets, long residues, int queryLen, long nanos){
+        double secs = nanos/1e9;
+        double gcups = (double)residues*queryLen/nanos;
+        out.printf("%s: %d targets, %d residues, %.1f s, %.0f targets/s, %.2f GCUPS%n",
+                   what, targets, residues, secs, targets/Math.max(secs, 1e-9), gcups);
+    }
+
+    //java --add-modules jdk.incubator.vector DatabaseSearch [-k 10] [-t threads] [-s linear] query.fa db.fa
+    public static void main(String[] args) throws IOException {
+        int k = 10, threads = Runtime.getRuntime().availableProcessors(), a = 0;
+        ScoringScheme scheme = ScoringScheme.LINEAR;
+        while(a < args.length && args[a].startsWith("-")){
+            if(args[a].equals("-k")) k = Integer.parseInt(args[++a]);
+            else if(args[a].equals("-s")) scheme = ScoringScheme.named(args[++a]);
+            else if(args[a].equals("-t")) threads = Integer.parseInt(args[++a]);
+            else throw new IllegalArgumentException("unknown option " + args[a]);
+            a++;
+        }
+        if(args.length - a != 2){
+            System.err.println("usage: DatabaseSearch [-k hits] [-t threads] [-s linear|blosum62|pam250] query.fa db.fa");
+            System.exit(2);
+        }
+        Sequence query = FastxReader.first(Paths.get(args[a]));
+
+        List<Hit> hits = search(query, Paths.get(args[a+1]), scheme, k, threads, System.err);
+        System.out.println("target\tscore\ttStart\ttEnd\tqStart\tqEnd");
+        for(Hit h : hits)
+            System.out.println(h);
+    }
+}
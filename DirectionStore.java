@@ -0,0 +1,127 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+//Traceback arrows kept outside the Java heap, packed: 2 bits per cell
+//(NONE/UL/U/L) for a linear scheme, 4 bits when the E_EXT/F_EXT bits are
+//needed too. Either direct buffers (bounded by -XX:MaxDirectMemorySize,
+//which defaults to -Xmx) or a memory-mapped temp file that close() deletes,
+//so the matrix is bounded by disk and the GC never scans or copies it.
+//Storage is split into 1 GB buffers since one buffer stops at 2 GB.
+//Rows are written whole and in order (putRow); get() reads single cells.
+class DirectionStore implements Directions, Closeable {
+    static final int CHUNK_BITS = 30;
+    static final long CHUNK = 1L << CHUNK_BITS;
+
+    final int rows, cols;
+    final int bits;//2 or 4
+    final ByteBuffer[] chunks;
+    final Path file;//null when off-heap
+    private byte[] packed = new byte[0];
+
+    private DirectionStore(int rows, int cols, boolean affine, Path file) throws IOException {
+        this.rows = rows;
+        this.cols = cols;
+        this.bits = affine ? 4 : 2;
+        this.file = file;
+        long size = ((long)rows*cols*bits + 7) >>> 3;
+        this.chunks = new ByteBuffer[(int)((size + CHUNK - 1) >>> CHUNK_BITS)];
+        if(file == null){
+            for(int c=0; c<chunks.length; c++)
+                chunks[c] = ByteBuffer.allocateDirect((int)Math.min(CHUNK, size - c*CHUNK));
+            return;
+        }
+        try(FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)){
+            for(int c=0; c<chunks.length; c++)
+                chunks[c] = ch.map(FileChannel.MapMode.READ_WRITE, c*CHUNK, Math.min(CHUNK, size - c*CHUNK));
+        }
+    }
+
+    //rows x cols cells in direct buffers
+    public static DirectionStore offHeap(int rows, int cols, boolean affine){
+        try {
+            return new DirectionStore(rows, cols, affine, null);
+        }
+        catch(IOException ex){
+            throw new AssertionError(ex);
+        }
+    }
+
+    //rows x cols cells in a new temp file under dir
+    public static DirectionStore mapped(int rows, int cols, boolean affine, Path dir) throws IOException {
+        Path f = Files.createTempFile(dir, "sw", ".dir");
+        try {
+            return new DirectionStore(rows, cols, affine, f);
+        }
+        catch(IOException | RuntimeException ex){
+            Files.deleteIfExists(f);
+            throw ex;
+        }
+    }
+
+    //store big enough for swMatrix(X, Y, s); mapped under dir unless dir is null
+    public static DirectionStore of(CharSequence X, CharSequence Y, ScoringScheme s, Path dir) throws IOException {
+        boolean affine = s.gapOpen != s.gapExtend;
+        if(dir == null)
+            return offHeap(X.length()+1, Y.length()+1, affine);
+        return mapped(X.length()+1, Y.length()+1, affine, dir);
+    }
+
+    //arrows of row i, one byte per column as swMatrix makes them; bits the
+    //store does not keep are dropped. Rows must come in increasing order:
+    //a row that starts mid-byte shares that byte with the row before it
+    public void putRow(int i, byte[] arrows){
+        long bit = (long)i*cols*bits;
+        long at = bit >>> 3;
+        int mask = (1 << bits) - 1;
+        int acc = 0, accBits = (int)(bit & 7), k = 0;
+        if(accBits != 0)
+            acc = chunks[(int)(at >>> CHUNK_BITS)].get((int)(at & (CHUNK-1))) & ((1 << accBits) - 1);
+        if(packed.length < (cols*bits >>> 3) + 2)
+            packed = new byte[(cols*bits >>> 3) + 2];
+        for(int j=0; j<cols; j++){
+            acc |= (arrows[j] & mask) << accBits;
+            accBits += bits;
+            if(accBits == 8){
+                packed[k++] = (byte)acc;
+                acc = 0; accBits = 0;
+            }
+        }
+        if(accBits > 0)
+            packed[k++] = (byte)acc;
+        for(int off=0; off<k; ){
+            int c = (int)(at >>> CHUNK_BITS), p = (int)(at & (CHUNK-1));
+            int len = (int)Math.min(k - off, CHUNK - p);
+            chunks[c].put(p, packed, off, len);
+            off += len;
+            at += len;
+        }
+    }
+
+    @Override
+    public int get(int i, int j){
+        long bit = ((long)i*cols + j)*bits;
+        long at = bit >>> 3;
+        int b = chunks[(int)(at >>> CHUNK_BITS)].get((int)(at & (CHUNK-1)));
+        return b >>> (bit & 7) & ((1 << bits) - 1);
+    }
+
+    //bytes held, off-heap or on disk
+    public long size(){
+        return ((long)rows*cols*bits + 7) >>> 3;
+    }
+
+    //deletes the temp file; mappings and direct buffers are released when
+    //the buffers are collected, so the store must not be read afterwards
+    @Override
+    public void close() throws IOException {
+        for(int c=0; c<chunks.length; c++)
+            chunks[c] = null;
+        if(file != null)
+            Files.deleteIfExists(file);
+    }
+}
@@ -0,0 +1,6 @@
+//Read side of a traceback arrow store: the swMatrix arrow byte of cell
+//(i, j), E_EXT/F_EXT bits included, and NONE wherever H is 0. Lets
+//SmithWaterman.traceback walk arrows kept somewhere other than a ScoreMatrix
+interface Directions {
+    int get(int i, int j);
+}
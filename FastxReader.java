@@ -0,0 +1,209 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+//FASTA/FASTQ records straight off a memory-mapped file, one at a time.
+//The file is mapped in windows of at most WINDOW bytes (a single map tops out
+//at 2 GB), each window starting at the record being parsed, so multi-GB files
+//work as long as no single record is bigger than a window. Multi-line records
+//are fine; whitespace and '\r' inside the residues are dropped.
+//next() hands back the same Record every time: its header, residues and
+//qualities are Sequence views over byte buffers owned by the reader, which
+//are overwritten by the following next(). Call copy() on whatever has to
+//outlive that. No String is built unless id/header toString() is asked for.
+class FastxReader implements Closeable {
+    static final int WINDOW = Integer.MAX_VALUE;
+    private static final long NEWLINES = 0x0a0a0a0a0a0a0a0aL, ONES = 0x0101010101010101L, HIGHS = 0x8080808080808080L;
+
+    private final FileChannel ch;
+    private final long size;
+    private final int window;
+    private MappedByteBuffer buf;
+    private long base;//file offset of buf[0]
+    private int lim;//buf bytes mapped
+    private long pos;//file offset of the next unread byte
+    private long recStart;//file offset of the record being parsed
+    private long index;
+
+    private byte[] head = new byte[256], seq = new byte[1 << 16], qual = new byte[0];
+    private final Record rec = new Record();
+
+    //the current record; everything in it is only valid until the next next()
+    static final class Record {
+        long index, offset;
+        Sequence header, seq, qual;
+
+        //record number in the file, 0-based
+        public long index(){
+            return index;
+        }
+        //file offset of the '>' or '@'
+        public long offset(){
+            return offset;
+        }
+        //the whole header line, without the '>' or '@'
+        public Sequence header(){
+            return header;
+        }
+        //first word of the header
+        public Sequence id(){
+            int n = 0;
+            while(n < header.length() && header.byteAt(n) > ' ')
+                n++;
+            return header.slice(0, n);
+        }
+        public Sequence seq(){
+            return seq;
+        }
+        //FASTQ qualities, null for FASTA
+        public Sequence qual(){
+            return qual;
+        }
+    }
+
+    public FastxReader(Path file) throws IOException {
+        this(file, WINDOW);
+    }
+
+    public FastxReader(Path file, int window) throws IOException {
+        if(window < 1)
+            throw new IllegalArgumentException("window must be positive: " + window);
+        this.ch = FileChannel.open(file, StandardOpenOption.READ);
+        this.size = ch.size();
+        this.window = window;
+    }
+
+    //residues of the first record in file, copied out
+    public static Sequence first(Path file) throws IOException {
+        try(FastxReader in = new FastxReader(file)){
+            Record rec = in.next();
+            if(rec == null)
+                throw new IOException("no record in " + file);
+            return rec.seq().copy();
+        }
+    }
+
+    //next record, null at end of file
+    public Record next() throws IOException {
+        int c;
+        recStart = pos;
+        while((c = at(pos)) != -1 && c <= ' ')
+            pos++;
+        if(c == -1)
+            return null;
+        if(c != '>' && c != '@')
+            throw new IOException("expected '>' or '@' at offset " + pos + ", found '" + (char)c + "'");
+        recStart = pos;
+        boolean fastq = c == '@';
+
+        //header line
+        long e = eol(++pos);
+        int h = (int)(e - pos);
+        if(h > head.length)
+            head = grow(head, h);
+        buf.get((int)(pos - base), head, 0, h);
+        if(h > 0 && head[h-1] == '\r')
+            h--;
+        pos = e;
+
+        //residue lines up to the next header (FASTA) or the '+' line (FASTQ)
+        int n = 0;
+        while((c = at(++pos)) != -1 && c != (fastq ? '+' : '>')){
+            e = eol(pos);
+            int len = (int)(e - pos);
+            if(n + len > seq.length)
+                seq = grow(seq, n + len);
+            buf.get((int)(pos - base), seq, n, len);
+            n = squeeze(seq, n, n + len);
+            pos = e;
+        }
+
+        int q = -1;
+        if(fastq){
+            if(c != '+')
+                throw new IOException("FASTQ record at offset " + recStart + " has no '+' line");
+            pos = eol(pos);
+            //quality lines until there are as many as residues
+            if(qual.length < seq.length)
+                qual = new byte[seq.length];
+            q = 0;
+            while(q < n && at(++pos) != -1){
+                e = eol(pos);
+                int len = (int)(e - pos);
+                if(q + len > qual.length)
+                    qual = grow(qual, q + len);
+                buf.get((int)(pos - base), qual, q, len);
+                q = squeeze(qual, q, q + len);
+                pos = e;
+            }
+            if(q != n)
+                throw new IOException("FASTQ record at offset " + recStart + " has " + q + " qualities for " + n + " residues");
+        }
+
+        rec.index = index++;
+        rec.offset = recStart;
+        rec.header = new Sequence(head, 0, h);
+        rec.seq = new Sequence(seq, 0, n);
+        rec.qual = q < 0 ? null : new Sequence(qual, 0, q);
+        return rec;
+    }
+
+    //byte at file offset p, -1 past the end; remaps at the current record when p leaves the window
+    private int at(long p) throws IOException {
+        long r = p - base;
+        if(r >= 0 && r < lim)
+            return buf.get((int)r) & 0xff;
+        if(p >= size)
+            return -1;
+        long from = p < recStart ? p : recStart;
+        if(p - from >= window)
+            throw new IOException("record at offset " + recStart + " is longer than the " + window + " byte map window");
+        base = from;
+        lim = (int)Math.min(window, size - from);
+        buf = ch.map(FileChannel.MapMode.READ_ONLY, base, lim);
+        return buf.get((int)(p - base)) & 0xff;
+    }
+
+    //file offset of the '\n' (or end of file) ending the line at p, with the whole line mapped;
+    //p must already be in the window
+    private long eol(long p) throws IOException {
+        while(true){
+            int e = (int)(p - base);
+            //8 bytes at a time until a word holds a '\n', then byte by byte
+            for(long v; e + 8 <= lim; e += 8){
+                v = buf.getLong(e) ^ NEWLINES;
+                if(((v - ONES) & ~v & HIGHS) != 0)
+                    break;
+            }
+            while(e < lim && buf.get(e) != '\n')
+                e++;
+            p = base + e;
+            if(e < lim || p >= size)
+                return p;
+            at(p);
+        }
+    }
+
+    //drops whitespace and control bytes from b[from, to), returns the new end
+    private static int squeeze(byte[] b, int from, int to){
+        int k = from;
+        for(int i=from; i<to; i++)
+            if((b[i] & 0xff) > ' ')
+                b[k++] = b[i];
+        return k;
+    }
+
+    private static byte[] grow(byte[] b, int min){
+        return Arrays.copyOf(b, Math.max(min, (int)Math.min(2L*b.length, Integer.MAX_VALUE - 8)));
+    }
+
+    @Override
+    public void close() throws IOException {
+        buf = null;
+        ch.close();
+    }
+}
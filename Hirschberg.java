@@ -0,0 +1,199 @@
+//Linear-space local alignment for sequences too long for a full matrix.
+//1. one forward pass over two rolling rows gives the best score, its end
+//   (ie, je) and its start (is, js): each cell carries the cell its backward
+//   walk would stop on, so the endpoints are the ones a full-matrix
+//   traceback from the same max would report
+//2. X[is..ie) x Y[js..je) is aligned globally by Hirschberg's divide and
+//   conquer, splitting X at its middle row each time; the split column is
+//   found by the same carried-cell trick instead of a backward pass
+//Peak memory is a handful of int rows the length of Y plus the output rows.
+//Scores come from a ScoringScheme with linear gaps (gapOpen == gapExtend).
+//Both sequences are turned into residue codes once and each row reads the
+//matrix row of its X residue, indexed by Y's codes; unlike swScore's query
+//profile that costs one row of Y, not one per alphabet letter.
+class Hirschberg {
+    //blocks with at most this many cells are aligned with a full table
+    static final int CUTOFF = 1 << 12;
+
+    //what one call works with: codes of both sequences and the linear gap
+    private record Scores(int[][] matrix, int[] xc, int[] yc, int gap) {}
+
+    public static Alignment align(CharSequence X, CharSequence Y){
+        return align(X, Y, ScoringScheme.LINEAR);
+    }
+
+    public static Alignment align(CharSequence X, CharSequence Y, ScoringScheme s){
+        if(!s.isLinear())
+            throw new IllegalArgumentException("Hirschberg needs linear gaps (gapOpen == gapExtend): " + s);
+        int m = X.length();
+        int n = Y.length();
+        Scores sc = new Scores(s.matrix, codes(X, s), codes(Y, s), -s.gapOpen);
+        int[] yc = sc.yc;
+        int gap = sc.gap;
+        //forward pass: scores plus, for every cell, the cell its backward walk
+        //would stop on (first zero reached following UL, U, L preferences)
+        int[] prev = new int[n+1], curr = new int[n+1];
+        int[] prevI = new int[n+1], currI = new int[n+1];
+        int[] prevJ = new int[n+1], currJ = new int[n+1];
+        int[] tmp;
+        int best = 0, ie = 0, je = 0, is = 0, js = 0;
+
+        for(int i=1; i<m+1; i++){
+            int[] row = sc.matrix[sc.xc[i-1]];
+            curr[0] = 0;
+            for(int j=1; j<n+1; j++){
+                int d = prev[j-1] + row[yc[j-1]];
+                int up = prev[j] + gap;
+                int left = curr[j-1] + gap;
+                int v, oi, oj;
+                if(d >= up && d >= left){
+                    v = d;
+                    oi = prev[j-1] == 0 ? i-1 : prevI[j-1];
+                    oj = prev[j-1] == 0 ? j-1 : prevJ[j-1];
+                }
+                else if(up >= left){
+                    v = up;
+                    oi = prev[j] == 0 ? i-1 : prevI[j];
+                    oj = prev[j] == 0 ? j : prevJ[j];
+                }
+                else {
+                    v = left;
+                    oi = curr[j-1] == 0 ? i : currI[j-1];
+                    oj = curr[j-1] == 0 ? j-1 : currJ[j-1];
+                }
+                if(v < 0) v = 0;
+                curr[j] = v; currI[j] = oi; currJ[j] = oj;
+                if(v > best){
+                    best = v; ie = i; je = j; is = oi; js = oj;
+                }
+            }
+            tmp = prev; prev = curr; curr = tmp;
+            tmp = prevI; prevI = currI; currI = tmp;
+            tmp = prevJ; prevJ = currJ; currJ = tmp;
+        }
+        if(best == 0)
+            return new Alignment(0, 0, 0, 0, 0, "", "");
+
+        StringBuilder row1 = new StringBuilder(), row2 = new StringBuilder();
+        int[] score = new int[je-js+1], cross = new int[je-js+1];
+        align(sc, X, is, ie, Y, js, je, score, cross, row1, row2);
+        return new Alignment(best, is, ie, js, je, row1.toString(), row2.toString());
+    }
+
+    //residue codes of S, one pass over its chars
+    private static int[] codes(CharSequence S, ScoringScheme s){
+        int[] c = new int[S.length()];
+        for(int i=0; i<c.length; i++)
+            c[i] = s.code(S.charAt(i));
+        return c;
+    }
+
+    //global alignment of X[xs..xe) with Y[ys..ye), appended left to right
+    private static void align(Scores sc, CharSequence X, int xs, int xe, CharSequence Y, int ys, int ye,
+                              int[] score, int[] cross, StringBuilder row1, StringBuilder row2){
+        int rows = xe-xs, cols = ye-ys;
+        if(rows <= 1 || (long)(rows+1)*(cols+1) <= CUTOFF){
+            alignBlock(sc, X, xs, xe, Y, ys, ye, row1, row2);
+            return;
+        }
+
+        int mid = (xs+xe)/2;
+        int split = crossing(sc, xs, xe, mid, ys, ye, score, cross);
+
+        align(sc, X, xs, mid, Y, ys, ys+split, score, cross, row1, row2);
+        align(sc, X, mid, xe, Y, ys+split, ye, score, cross, row1, row2);
+    }
+
+    //global fill of X[xs..xe) against Y[ys..ye) that also carries, below row
+    //mid, the column where each cell's UL/U/L walk enters row mid; the walk
+    //from the corner is the one alignBlock would take, so splitting there
+    //keeps the path (ties included) identical to a full-table traceback
+    private static int crossing(Scores sc, int xs, int xe, int mid, int ys, int ye, int[] score, int[] cross){
+        int[] yc = sc.yc;
+        int gap = sc.gap;
+        int cols = ye-ys;
+        for(int j=0; j<=cols; j++)
+            score[j] = j*gap;
+        for(int i=xs; i<xe; i++){
+            int[] row = sc.matrix[sc.xc[i]];
+            boolean below = i >= mid;
+            boolean first = i == mid;//previous row is row mid itself
+            int diag = score[0], diagCross = cross[0];
+            score[0] += gap;
+            if(below)
+                cross[0] = 0;
+            for(int j=1; j<=cols; j++){
+                int d = diag + row[yc[ys+j-1]];
+                int up = score[j] + gap;
+                int left = score[j-1] + gap;
+                int upCross = cross[j];
+                diag = score[j];
+                if(d >= up && d >= left){
+                    score[j] = d;
+                    if(below) cross[j] = first ? j-1 : diagCross;
+                }
+                else if(up >= left){
+                    score[j] = up;
+                    if(below) cross[j] = first ? j : upCross;
+                }
+                else {
+                    score[j] = left;
+                    if(below) cross[j] = cross[j-1];
+                }
+                diagCross = upCross;
+            }
+        }
+        return cross[cols];
+    }
+
+    //small block: full table, then the usual UL, U, L walk back from the corner
+    private static void alignBlock(Scores sc, CharSequence X, int xs, int xe, CharSequence Y, int ys, int ye,
+                                   StringBuilder row1, StringBuilder row2){
+        int[] yc = sc.yc;
+        int gap = sc.gap;
+        int rows = xe-xs, cols = ye-ys, w = cols+1;
+        int[] score = new int[(rows+1)*w];
+        byte[] dir = new byte[(rows+1)*w];
+        for(int j=1; j<=cols; j++){
+            score[j] = j*gap; dir[j] = ScoreMatrix.L;
+        }
+        for(int i=1; i<=rows; i++){
+            int[] row = sc.matrix[sc.xc[xs+i-1]];
+            score[i*w] = i*gap; dir[i*w] = ScoreMatrix.U;
+            for(int j=1; j<=cols; j++){
+                int d = score[(i-1)*w+j-1] + row[yc[ys+j-1]];
+                int up = score[(i-1)*w+j] + gap;
+                int left = score[i*w+j-1] + gap;
+                if(d >= up && d >= left){
+                    score[i*w+j] = d; dir[i*w+j] = ScoreMatrix.UL;
+                }
+                else if(up >= left){
+                    score[i*w+j] = up; dir[i*w+j] = ScoreMatrix.U;
+                }
+                else {
+                    score[i*w+j] = left; dir[i*w+j] = ScoreMatrix.L;
+                }
+            }
+        }
+
+        char[] r1 = new char[rows+cols], r2 = new char[rows+cols];
+        int k = 0, i = rows, j = cols;
+        while(i > 0 || j > 0){
+            byte arrow = dir[i*w+j];
+            if(arrow == ScoreMatrix.UL){
+                r1[k] = X.charAt(xs+i-1); r2[k] = Y.charAt(ys+j-1); i--; j--;
+            }
+            else if(arrow == ScoreMatrix.U){
+                r1[k] = X.charAt(xs+i-1); r2[k] = '-'; i--;
+            }
+            else {
+                r1[k] = '-'; r2[k] = Y.charAt(ys+j-1); j--;
+            }
+            k++;
+        }
+        while(k-- > 0){
+            row1.append(r1[k]);
+            row2.append(r2[k]);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+//One database hit: target id and its position in the file, best local score
+//and the aligned stretch on target and query (0-based, end exclusive)
+record Hit(String target, long index, int score, int tStart, int tEnd, int qStart, int qEnd) {
+    @Override
+    public String toString() {
+        return this.target + "\t" + this.score + "\t" + this.tStart + "\t" + this.tEnd
+            + "\t" + this.qStart + "\t" + this.qEnd;
+    }
+}
@@ -0,0 +1,619 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+// RedBlackBST with primitive int keys: the same left-leaning red-black tree
+// and the same iterative put/delete, but each node holds its key as an int
+// and every step compares with < and > instead of a virtual compareTo on a
+// boxed Integer. A node is 40 bytes with compressed oops, against 56 for the
+// generic node and the Integer it points to.
+public class IntRedBlackBST<Value> {
+
+    private static final boolean RED   = true;
+    private static final boolean BLACK = false;
+
+    private Node root;     // root of the BST
+
+    // 2 lg n levels at most for any int size, plus one for a rotation made
+    // on the way down in delete
+    private static final int MAX_HEIGHT = 64;
+    // put/delete save their descent here instead of in a fresh Stack per call
+    private final Node[] path = stack(MAX_HEIGHT);
+
+    // what the delete descent removes: the given key, the minimum or the maximum
+    private static final int KEY = 0, MIN = 1, MAX = 2;
+
+    // BST helper node data type; static, so no hidden reference to the tree
+    private static final class Node {
+        private int key;          // key
+        private Object val;        // associated data, a Value
+        private Node left, right;  // links to left and right subtrees
+        private boolean color;     // color of parent link
+        private int size;          // subtree count
+
+        public Node(int key, Object val, boolean color, int size) {
+            this.key = key;
+            this.val = val;
+            this.color = color;
+            this.size = size;
+        }
+    }
+
+    public IntRedBlackBST() {
+    }
+
+    // explicit stack for the loops below; n = MAX_HEIGHT holds any root-to-leaf path
+    private Node[] stack(int n) {
+        return new Node[n];
+    }
+
+    // is node x red; false if x is null ?
+    private boolean isRed(Node x) {
+        if (x == null) return false;
+        return x.color == RED;
+    }
+
+    // number of node in subtree rooted at x; 0 if x is null
+    private int size(Node x) {
+        if (x == null) return 0;
+        return x.size;
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    // value associated with the given key; null if no such key
+    @SuppressWarnings("unchecked")
+    public Value get(int key) {
+        Node x = node(root, key);
+        return x == null ? null : (Value) x.val;
+    }
+
+    // the node with the given key in subtree rooted at x; null if no such key
+    private Node node(Node x, int key) {
+        while (x != null) {
+            if      (key < x.key) x = x.left;
+            else if (key > x.key) x = x.right;
+            else                  return x;
+        }
+        return null;
+    }
+
+    public boolean contains(int key) {
+        return node(root, key) != null;
+    }
+
+    public void put(int key, Value val) {
+        if (val == null) {
+            delete(key);
+            return;
+        }
+
+        // one descent: an existing key just gets the new value
+        Node h = root;
+        Node[] path = this.path;
+        long left = 0;// bit d set: the path went left at depth d
+        int depth = 0;
+        while (h != null) {
+            if (key == h.key) {
+                h.val = val;
+                return;
+            }
+            path[depth] = h;
+            if (key < h.key) {
+                left |= 1L << depth;
+                h = h.left;
+            } else {
+                h = h.right;
+            }
+            depth++;
+        }
+
+        // new key: hang the node where the search fell off and fix up the
+        // saved path on the way back, as in RedBlackBST.put
+        Node x = new Node(key, val, RED, 1);
+        while (depth > 0) {
+            Node p = path[--depth];
+            path[depth] = null;
+            if ((left >>> depth & 1) != 0) p.left = x;
+            else                           p.right = x;
+            p.size++;
+            if (isRed(p.right) && !isRed(p.left))     p = rotateLeft(p);
+            if (isRed(p.left) && isRed(p.left.left))  p = rotateRight(p);
+            if (isRed(p.left) && isRed(p.right))      flipColors(p);
+            x = p;
+        }
+        root = x;
+        root.color = BLACK;
+        // assert check();
+    }
+
+    public void deleteMin() {
+        if (isEmpty()) throw new NoSuchElementException("BST underflow");
+        fixupRoot();
+        root = delete(root, 0, MIN);
+        if (!isEmpty()) root.color = BLACK;
+        // assert check();
+    }
+
+    public void deleteMax() {
+        if (isEmpty()) throw new NoSuchElementException("BST underflow");
+        fixupRoot();
+        root = delete(root, 0, MAX);
+        if (!isEmpty()) root.color = BLACK;
+        // assert check();
+    }
+
+    private void fixupRoot() {
+        // if both children of root are black, set root to red
+        if (!isRed(root.left) && !isRed(root.right)) {
+            root.color = RED;
+        }
+    }
+
+    public void delete(int key) {
+        if (isEmpty())
+            return;
+
+        fixupRoot();
+
+        root = delete(root, key, KEY);
+        if (!isEmpty())
+            root.color = BLACK;
+        // assert check();
+    }
+
+    // the single-descent delete of RedBlackBST, see there
+    private Node delete(Node h, int key, int target) {
+        Node[] path = this.path;
+        long left = 0;// bit d set: the path went left at depth d
+        int depth = 0;
+        Node x;// what takes the place of the subtree the descent ended in
+        while (true) {
+            int cmp = compare(key, h, target);
+            if (cmp < 0) {
+                if (h.left == null) {
+                    // key is not in the tree
+                    x = balance(h);
+                    break;
+                }
+                if (!isRed(h.left) && !isRed(h.left.left))
+                    h = moveRedLeft(h);
+                path[depth] = h;
+                left |= 1L << depth;
+                depth++;
+                h = h.left;
+            } else {
+                if (isRed(h.left)) {
+                    h = rotateRight(h);
+                    cmp = compare(key, h, target);
+                }
+                if (h.right == null) {
+                    // a match here has no right child and so is a leaf
+                    x = cmp == 0 ? null : balance(h);
+                    break;
+                }
+                if (!isRed(h.right) && !isRed(h.right.left)) {
+                    h = moveRedRight(h);
+                    cmp = compare(key, h, target);
+                }
+                if (cmp == 0) {
+                    Node m = min(h.right);
+                    h.key = m.key;
+                    h.val = m.val;
+                    target = MIN;
+                }
+                path[depth] = h;
+                depth++;
+                h = h.right;
+            }
+        }
+
+        // back up to the root: attach the modified child on its side, balance
+        while (depth > 0) {
+            Node p = path[--depth];
+            path[depth] = null;
+            if ((left >>> depth & 1) != 0) p.left = x;
+            else                           p.right = x;
+            x = balance(p);
+        }
+        return x;
+    }
+
+    // key against h for the delete descent; the min/max node compares equal,
+    // everything else as if the key were smaller/larger than any in the tree
+    private int compare(int key, Node h, int target) {
+        if (target == MIN) return h.left == null ? 0 : -1;
+        if (target == MAX) return h.right == null ? 0 : 1;
+        return Integer.compare(key, h.key);
+    }
+
+
+    // make a left-leaning link lean to the right
+    private Node rotateRight(Node h) {
+        // assert (h != null) && isRed(h.left);
+        Node x = h.left;
+        h.left = x.right;
+        x.right = h;
+        x.color = x.right.color;
+        x.right.color = RED;
+        x.size = h.size;
+        h.size = size(h.left) + size(h.right) + 1;
+        return x;
+    }
+
+    // make a right-leaning link lean to the left
+    private Node rotateLeft(Node h) {
+        // assert (h != null) && isRed(h.right);
+        Node x = h.right;
+        h.right = x.left;
+        x.left = h;
+        x.color = x.left.color;
+        x.left.color = RED;
+        x.size = h.size;
+        h.size = size(h.left) + size(h.right) + 1;
+        return x;
+    }
+
+    // flip the colors of a node and its two children
+    private void flipColors(Node h) {
+        // h must have opposite color of its two children
+        // assert (h != null) && (h.left != null) && (h.right != null);
+        // assert (!isRed(h) &&  isRed(h.left) &&  isRed(h.right))
+        //    || (isRed(h)  && !isRed(h.left) && !isRed(h.right));
+        h.color = !h.color;
+        h.left.color = !h.left.color;
+        h.right.color = !h.right.color;
+    }
+
+    // Assuming that h is red and both h.left and h.left.left
+    // are black, make h.left or one of its children red.
+    private Node moveRedLeft(Node h) {
+        // assert (h != null);
+        // assert isRed(h) && !isRed(h.left) && !isRed(h.left.left);
+
+        flipColors(h);
+        if (isRed(h.right.left)) {
+            h.right = rotateRight(h.right);
+            h = rotateLeft(h);
+            flipColors(h);
+        }
+        return h;
+    }
+
+    // Assuming that h is red and both h.right and h.right.left
+    // are black, make h.right or one of its children red.
+    private Node moveRedRight(Node h) {
+        // assert (h != null);
+        // assert isRed(h) && !isRed(h.right) && !isRed(h.right.left);
+        flipColors(h);
+        if (isRed(h.left.left)) {
+            h = rotateRight(h);
+            flipColors(h);
+        }
+        return h;
+    }
+
+    // restore red-black tree invariant
+    private Node balance(Node h) {
+        // assert (h != null);
+
+        if (isRed(h.right))                      h = rotateLeft(h);
+        if (isRed(h.left) && isRed(h.left.left)) h = rotateRight(h);
+        if (isRed(h.left) && isRed(h.right))     flipColors(h);
+        h.size = size(h.left) + size(h.right) + 1;
+        return h;
+    }
+
+    public int height() {
+        return height(root);
+    }
+
+    // depth-first with the depth of every stacked node kept alongside it;
+    // at most one pending right child per level is ever on the stack
+    private int height(Node x) {
+        if (x == null) return -1;
+        Node[] stack = stack(MAX_HEIGHT + 1);
+        int[] depths = new int[MAX_HEIGHT + 1];
+        int top = 0, height = 0;
+        stack[top] = x;
+        depths[top++] = 0;
+        while (top > 0) {
+            x = stack[--top];
+            int d = depths[top];
+            if (d > height) height = d;
+            if (x.right != null) {
+                stack[top] = x.right;
+                depths[top++] = d + 1;
+            }
+            if (x.left != null) {
+                stack[top] = x.left;
+                depths[top++] = d + 1;
+            }
+        }
+        return height;
+    }
+
+    public int min() {
+        if (isEmpty()) throw new NoSuchElementException("calls min() with empty symbol table");
+        return min(root).key;
+    }
+
+    // the node with the smallest key in subtree rooted at x
+    private Node min(Node x) {
+        // assert x != null;
+        while (x.left != null)
+            x = x.left;
+        return x;
+    }
+
+    public int max() {
+        if (isEmpty()) throw new NoSuchElementException("calls max() with empty symbol table");
+        return max(root).key;
+    }
+
+    // the node with the largest key in the subtree rooted at x
+    private Node max(Node x) {
+        // assert x != null;
+        while (x.right != null)
+            x = x.right;
+        return x;
+    }
+
+    public int floor(int key) {
+        if (isEmpty()) throw new NoSuchElementException("calls floor() with empty symbol table");
+        Node x = floor(root, key);
+        if (x == null) throw new NoSuchElementException("argument to floor() is too small");
+        else           return x.key;
+    }
+
+    // the largest key in the subtree rooted at x less than or equal to the given key
+    // the last node we went right from is the best candidate so far
+    private Node floor(Node x, int key) {
+        Node t = null;
+        while (x != null) {
+            if (key == x.key) return x;
+            if (key < x.key) {
+                x = x.left;
+            } else {
+                t = x;
+                x = x.right;
+            }
+        }
+        return t;
+    }
+
+    public int ceiling(int key) {
+        if (isEmpty()) throw new NoSuchElementException("calls ceiling() with empty symbol table");
+        Node x = ceiling(root, key);
+        if (x == null) throw new NoSuchElementException("argument to ceiling() is too large");
+        else           return x.key;
+    }
+
+    // the smallest key in the subtree rooted at x greater than or equal to the given key
+    // the last node we went left from is the best candidate so far
+    private Node ceiling(Node x, int key) {
+        Node t = null;
+        while (x != null) {
+            if (key == x.key) return x;
+            if (key > x.key) {
+                x = x.right;
+            } else {
+                t = x;
+                x = x.left;
+            }
+        }
+        return t;
+    }
+
+    public int select(int rank) {
+        if (rank < 0 || rank >= size()) {
+            throw new IllegalArgumentException("argument to select() is invalid: " + rank);
+        }
+        return select(root, rank).key;
+    }
+
+    // the node of given rank in BST rooted at x
+    // Precondition: rank is in legal range.
+    private Node select(Node x, int rank) {
+        while (true) {
+            int leftSize = size(x.left);
+            if (leftSize > rank) {
+                x = x.left;
+            } else if (leftSize < rank) {
+                rank -= leftSize + 1;
+                x = x.right;
+            } else {
+                return x;
+            }
+        }
+    }
+
+    public int rank(int key) {
+        return rank(key, root);
+    }
+
+    // number of keys less than key in the subtree rooted at x
+    private int rank(int key, Node x) {
+        int rank = 0;
+        while (x != null) {
+            if (key < x.key) {
+                x = x.left;
+            } else if (key > x.key) {
+                rank += 1 + size(x.left);
+                x = x.right;
+            } else {
+                return rank + size(x.left);
+            }
+        }
+        return rank;
+    }
+
+    // all keys in ascending order
+    public PrimitiveIterator.OfInt keys() {
+        return new Keys(Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    // the keys between lo and hi in ascending order, found one at a time as
+    // the iterator is advanced, so nothing is boxed or queued up front.
+    // The tree must not be changed while iterating
+    public PrimitiveIterator.OfInt keys(int lo, int hi) {
+        return new Keys(lo, hi);
+    }
+
+    public int size(int lo, int hi) {
+        if (lo > hi) return 0;
+        if (contains(hi)) return rank(hi) - rank(lo) + 1;
+        else              return rank(hi) - rank(lo);
+    }
+
+    // in-order walk with an explicit stack: it starts on the path to lo,
+    // where a node below lo is skipped along with its left subtree and any
+    // other is stacked until its left side is done. Every node above a
+    // stacked one is larger than lo, so after that the left spines of the
+    // right subtrees are stacked whole. Nodes come off in key order and the
+    // first one above hi ends the walk
+    private class Keys implements PrimitiveIterator.OfInt {
+        private final Node[] stack = stack(MAX_HEIGHT);
+        private final int hi;
+        private int top;
+
+        Keys(int lo, int hi) {
+            this.hi = hi;
+            Node x = root;
+            while (x != null) {
+                if (lo > x.key) {
+                    x = x.right;
+                } else {
+                    stack[top++] = x;
+                    x = lo < x.key ? x.left : null;
+                }
+            }
+        }
+
+        public boolean hasNext() {
+            return top > 0 && stack[top - 1].key <= hi;
+        }
+
+        public int nextInt() {
+            if (!hasNext()) throw new NoSuchElementException();
+            Node x = stack[--top];
+            for (Node y = x.right; y != null; y = y.left)
+                stack[top++] = y;
+            return x.key;
+        }
+    }
+
+    private boolean check() {
+        return isBST() && isSizeConsistent() && isRankConsistent() && is23() && isBalanced();
+    }
+
+    // the validators below walk trees that may be broken, so unlike the
+    // operations above their stacks grow past MAX_HEIGHT when they must
+
+    // does this binary tree satisfy symmetric order?
+    // in-order walk with an explicit stack: symmetric order holds exactly
+    // when every key is strictly greater than the one visited before it
+    private boolean isBST() {
+        Node[] stack = stack(MAX_HEIGHT);
+        int top = 0;
+        boolean first = true;
+        int prev = 0;
+        Node x = root;
+        while (x != null || top > 0) {
+            while (x != null) {
+                if (top == stack.length) stack = Arrays.copyOf(stack, 2 * top);
+                stack[top++] = x;
+                x = x.left;
+            }
+            x = stack[--top];
+            if (!first && x.key <= prev) return false;
+            first = false;
+            prev = x.key;
+            x = x.right;
+        }
+        return true;
+    }
+
+    // are the size fields correct?
+    private boolean isSizeConsistent() {
+        if (root == null) return true;
+        Node[] stack = stack(MAX_HEIGHT + 1);
+        int top = 0;
+        stack[top++] = root;
+        while (top > 0) {
+            Node x = stack[--top];
+            if (x.size != size(x.left) + size(x.right) + 1) return false;
+            if (top + 2 > stack.length) stack = Arrays.copyOf(stack, 2 * stack.length);
+            if (x.right != null) stack[top++] = x.right;
+            if (x.left != null)  stack[top++] = x.left;
+        }
+        return true;
+    }
+
+    // check that ranks are consistent
+    private boolean isRankConsistent() {
+        for (int i = 0; i < size(); i++)
+            if (i != rank(select(i))) return false;
+        for (PrimitiveIterator.OfInt it = keys(); it.hasNext(); ) {
+            int key = it.nextInt();
+            if (key != select(rank(key))) return false;
+        }
+        return true;
+    }
+
+    // Does the tree have no red right links, and at most one (left)
+    // red links in a row on any path?
+    private boolean is23() {
+        if (root == null) return true;
+        Node[] stack = stack(MAX_HEIGHT + 1);
+        int top = 0;
+        stack[top++] = root;
+        while (top > 0) {
+            Node x = stack[--top];
+            if (isRed(x.right)) return false;
+            if (x != root && isRed(x) && isRed(x.left))
+                return false;
+            if (top + 2 > stack.length) stack = Arrays.copyOf(stack, 2 * stack.length);
+            if (x.right != null) stack[top++] = x.right;
+            if (x.left != null)  stack[top++] = x.left;
+        }
+        return true;
+    }
+
+    // do all paths from root to leaf have same number of black edges?
+    // each stacked node (null links included) carries the count still owed below it
+    private boolean isBalanced() {
+        int black = 0;     // number of black links on path from root to min
+        for (Node x = root; x != null; x = x.left)
+            if (!isRed(x)) black++;
+        Node[] stack = stack(MAX_HEIGHT + 2);
+        int[] owed = new int[MAX_HEIGHT + 2];
+        int top = 0;
+        stack[top] = root;
+        owed[top++] = black;
+        while (top > 0) {
+            Node x = stack[--top];
+            black = owed[top];
+            if (x == null) {
+                if (black != 0) return false;
+                continue;
+            }
+            if (!isRed(x)) black--;
+            if (top + 2 > stack.length) {
+                stack = Arrays.copyOf(stack, 2 * stack.length);
+                owed = Arrays.copyOf(owed, 2 * owed.length);
+            }
+            stack[top] = x.right;
+            owed[top++] = black;
+            stack[top] = x.left;
+            owed[top++] = black;
+        }
+        return true;
+    }
+}
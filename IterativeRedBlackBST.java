@@ -1,9 +1,17 @@
-import edu.princeton.cs.algs4.Queue;
-import edu.princeton.cs.algs4.Stack;
 import edu.princeton.cs.algs4.StdIn;
 import edu.princeton.cs.algs4.StdOut;
 
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class RedBlackBST<Key extends Comparable<Key>, Value> {
 
@@ -12,6 +20,15 @@ public class RedBlackBST<Key extends Comparable<Key>, Value> {
 
     private Node root;     // root of the BST
 
+    // 2 lg n levels at most for any int size, plus one for a rotation made
+    // on the way down in delete
+    private static final int MAX_HEIGHT = 64;
+    // put/delete save their descent here instead of in a fresh Stack per call
+    private final Node[] path = stack(MAX_HEIGHT);
+
+    // what the delete descent removes: the given key, the minimum or the maximum
+    private static final int KEY = 0, MIN = 1, MAX = 2;
+
     // BST helper node data type
     private class Node {
         private Key key;           // key
@@ -31,6 +48,12 @@ public class RedBlackBST<Key extends Comparable<Key>, Value> {
     public RedBlackBST() {
     }
 
+    // explicit stack for the loops below; n = MAX_HEIGHT holds any root-to-leaf path
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Node[] stack(int n) {
+        return (Node[]) new RedBlackBST.Node[n];
+    }
+
     // is node x red; false if x is null ?
     private boolean isRed(Node x) {
         if (x == null) return false;
@@ -78,101 +101,48 @@ public class RedBlackBST<Key extends Comparable<Key>, Value> {
             return;
         }
 
-        root = put(root, key, val);
-        root.color = BLACK;
-        // assert check();
-    }
-
-    private Node put(Node h, Key key, Value val) {
-        Node newNode = new Node(key, val, RED, 1);
-        if (h == null)
-            return newNode;
-
-        // in the first while loop, we traverse down the tree
-        // finding the appropriate place for the node and while
-        // traversing, we store node paths
-        Stack<Node> stack = new Stack<>();
-        Node current = null;
-        Node root = h;// primary root of the tree; for the return statement if
-                      // the key intended for insertion already exists
-
-        // for this loop our base case is to reach down the tree, i.e. node is null
+        // one descent: an existing key just gets the new value, nothing is
+        // allocated and nothing above it changes
+        Node h = root;
+        Node[] path = this.path;
+        long left = 0;// bit d set: the path went left at depth d
+        int depth = 0;
         while (h != null) {
-            // current node will be pointing to the last node that we will encounter before
-            // reaching the end i.e. this will be the node to which we will attach new node
-            current = h;
             int cmp = key.compareTo(h.key);
-            // if key is greater than current node, save node and go to the left
+            if (cmp == 0) {
+                h.val = val;
+                return;
+            }
+            path[depth] = h;
             if (cmp < 0) {
-                stack.push(h);
+                left |= 1L << depth;
                 h = h.left;
-            } else if (cmp > 0) {
-                // if key is greater than current node, save node and go to the right
-                stack.push(h);
-                h = h.right;
             } else {
-                h.val = val;
-                return root;
+                h = h.right;
             }
+            depth++;
         }
 
-        // base case achieved; last comparison for insertion
-        int cmp = key.compareTo(current.key);
-        if (cmp < 0)
-            current.left = newNode;// if key is greater than current node, ATTACH new node to the left
-        else
-            current.right = newNode;// if key is less than current node, ATTACH new node to the right
-
-        // we now start traversing back to the root
-        // we pop and check if any rb violations occur, and resolve them.
-        // and then attach the updated node to its parent node by the peek technique.
-        // we do this, unless we reach the end of stack or root
-        Node pop = null;
-        while (!stack.isEmpty()) {
-            // popping the next parent node from the stack.
-            pop = stack.pop();
-            // fix any right-leaning links
-            // if this node is not the last element in stack/or root
-            // check its parent. and attach this updated node after rb tree violation gets fixed
-            // in the appropriate direction i.e. left or right child is updated after resolving
-            // any rb-tree violation.
-            if (isRed(pop.right) && !isRed(pop.left)) {
-                // rotating left, resolving rb violation, fixing the links
-                pop = rotateLeft(pop);
-                // checking if stack is still non empty, meaning this is not the last node or parent node.
-                // we need to update the current node's parent with MODIFIED node.
-                if (!stack.isEmpty()) {
-                    // here we peek, without popping from the stack
-                    Node peek = stack.peek();
-                    // ATTACH--MODIFIED left or right node. peek is PARENT and pop is CHILD
-                    if (pop.key.compareTo(peek.key) < 0) {
-                        peek.left = pop;
-                    } else {
-                        peek.right = pop;
-                    }
-                }
-            }
-            if (isRed(pop.left) && isRed(pop.left.left)) {
-                // rotating node right, resolving rb violation.
-                pop = rotateRight(pop);
-                // checking if stack is still non empty, meaning this is not the last node or parent node
-                // as we need to update the current node parent with modified node details.
-                if (!stack.isEmpty()) {
-                    // here we peek
-                    Node peek = stack.peek();
-                    // ATTACH--MODIFIED left or right node.
-                    if (pop.key.compareTo(peek.key) < 0) {
-                        peek.left = pop;
-                    } else {
-                        peek.right = pop;
-                    }
-                }
-            }
-            if (isRed(pop.left) && isRed(pop.right))
-                flipColors(pop);
+        // new key: hang the node where the search fell off, then walk back up
+        // the saved path, attaching each (possibly rotated) subtree to its
+        // parent on the side recorded going down, counting the new node into
+        // every size on the way and fixing red-black violations like the
+        // recursive put does on return
+        Node x = new Node(key, val, RED, 1);
+        while (depth > 0) {
+            Node p = path[--depth];
+            path[depth] = null;
+            if ((left >>> depth & 1) != 0) p.left = x;
+            else                           p.right = x;
+            p.size++;
+            if (isRed(p.right) && !isRed(p.left))     p = rotateLeft(p);
+            if (isRed(p.left) && isRed(p.left.left))  p = rotateRight(p);
+            if (isRed(p.left) && isRed(p.right))      flipColors(p);
+            x = p;
         }
-        return pop;// pop is the analogue to h in:
-                   // https://algs4.cs.princeton.edu/code/edu/princeton/cs/algs4/RedBlackBST.java.html
+        root = x;
+        root.color = BLACK;
+        // assert check();
     }
 
     public void deleteMin() {
@@ -182,23 +152,11 @@ public class RedBlackBST<Key extends Comparable<Key>, Value> {
         if (!isRed(root.left) && !isRed(root.right))
             root.color = RED;
 
-        root = deleteMin(root);
+        root = delete(root, null, MIN);
         if (!isEmpty()) root.color = BLACK;
         // assert check();
     }
 
-    // delete the key-value pair with the minimum key rooted at h
-    private Node deleteMin(Node h) {
-        if (h.left == null)
-            return null;
-
-        if (!isRed(h.left) && !isRed(h.left.left))
-            h = moveRedLeft(h);
-
-        h.left = deleteMin(h.left);
-        return balance(h);
-    }
-
     public void deleteMax() {
         if (isEmpty()) throw new NoSuchElementException("BST underflow");
 
@@ -206,27 +164,11 @@ public class RedBlackBST<Key extends Comparable<Key>, Value> {
         if (!isRed(root.left) && !isRed(root.right))
             root.color = RED;
 
-        root = deleteMax(root);
+        root = delete(root, null, MAX);
         if (!isEmpty()) root.color = BLACK;
         // assert check();
     }
 
-    // delete the key-value pair with the maximum key rooted at h
-    private Node deleteMax(Node h) {
-        if (isRed(h.left))
-            h = rotateRight(h);
-
-        if (h.right == null)
-            return null;
-
-        if (!isRed(h.right) && !isRed(h.right.left))
-            h = moveRedRight(h);
-
-        h.right = deleteMax(h.right);
-
-        return balance(h);
-    }
-
     private void fixupRoot() {
         // if both children of root are black, set root to red
         if (!isRed(root.left) && !isRed(root.right)) {
@@ -238,103 +180,90 @@ public class RedBlackBST<Key extends Comparable<Key>, Value> {
     public void delete(Key key) {
         if (key == null)
             throw new IllegalArgumentException("argument to delete() is null");
-        if (!contains(key))
+        if (isEmpty())
             return;
 
         fixupRoot();
 
-        root = delete(root, key);
+        root = delete(root, key, KEY);
         if (!isEmpty())
             root.color = BLACK;
         assert check();
     }
     // solution from introduction to algorithms 3rd edition by cormen
 
-    // we use 2 stacks here. nodeStack is used to store the parent node and isLeftDir is used to store the direction
-    // i.e. iterate and traverse h to the right or left while pushing nodes onto the stack up to the node of deletion
-    // as we traverse down the tree, we also update the balance properties
-    // note that there are two delete cases: one with null stack push/break and one with a call to deleteMin()/break
-    // in the first while loop, we keep a trace of where we've been with two stacks and begin to explore that
-    // trace in the second while loop after finding the delete key
-    // then we traverse back up to the root through stack manipulation, reattach and re-balance parent nodes as we go
-
-    private Node delete(Node h, Key key) {
-        assert get(h, key) != null;
-        // to store parent nodes or path
-        Stack<Node> nodeStack = new Stack<>();
-        // to store direction of nodes. if direction is left we store true, else false
-        Stack<Boolean> isLeftDir = new Stack<>();
-        // starting from root, until the end of the tree
-        while (h != null) {
-            // check if the key to delete is less than current node, go left
-            if (key.compareTo(h.key) < 0) {
+    // one descent, no contains() up front: going down we apply the same
+    // moveRedLeft/moveRedRight transformations as the recursive delete and
+    // save each node in the path array, with its direction as one bit of a
+    // long. Once the key is found with children, its successor's key and value
+    // are copied in and the descent simply carries on as a MIN descent of the
+    // right subtree, which is the deleteMin of the recursive version.
+    // deleteMin and deleteMax are the same loop, steered by compare().
+    // If the search falls off the tree the key is absent and nothing is
+    // removed, but the transformations already made are undone by the same
+    // walk back up, which reattaches and re-balances every saved parent
+    private Node delete(Node h, Key key, int target) {
+        Node[] path = this.path;
+        long left = 0;// bit d set: the path went left at depth d
+        int depth = 0;
+        Node x;// what takes the place of the subtree the descent ended in
+        while (true) {
+            int cmp = compare(key, h, target);
+            if (cmp < 0) {
+                if (h.left == null) {
+                    // key is not in the tree
+                    x = balance(h);
+                    break;
+                }
                 if (!isRed(h.left) && !isRed(h.left.left))
                     h = moveRedLeft(h);
-                nodeStack.push(h); // store node in stack
-                isLeftDir.push(true); // store left direction
+                path[depth] = h;
+                left |= 1L << depth;
+                depth++;
                 h = h.left;
             } else {
-                // check if the key to delete is greater than the current node, go right
-                if (isRed(h.left))
+                if (isRed(h.left)) {
                     h = rotateRight(h);
-                if (key.compareTo(h.key) == 0 && (h.right == null)) {
-                    // this means we have reached the node, so push null onto
-                    // the stack since it needs to be deleted
-
-                    // no need to store direction
-                    nodeStack.push(null);
+                    cmp = compare(key, h, target);
+                }
+                if (h.right == null) {
+                    // a match here has no right child and so is a leaf
+                    x = cmp == 0 ? null : balance(h);
                     break;
                 }
-                if (!isRed(h.right) && !isRed(h.right.left))
+                if (!isRed(h.right) && !isRed(h.right.left)) {
                     h = moveRedRight(h);
-                if (key.compareTo(h.key) == 0) {
-                    Node x = min(h.right);
-                    h.key = x.key;
-                    h.val = x.val;
-                    // h.val = get(h.right, min(h.right).key);
-                    // h.key = min(h.right).key;
-
-                    // this means we have reached the node, and the node to delete is
-                    // on the right after deletion, update the node and push it on the stack
-                    // since this is the deletion node, no need to store direction
-                    h.right = deleteMin(h.right);
-                    nodeStack.push(h);
-                    break;
-                } else {
-                    nodeStack.push(h);// store node in stack.
-                    isLeftDir.push(false);// store right direction.
-                    h = h.right;
+                    cmp = compare(key, h, target);
                 }
+                if (cmp == 0) {
+                    Node m = min(h.right);
+                    h.key = m.key;
+                    h.val = m.val;
+                    target = MIN;
+                }
+                path[depth] = h;
+                depth++;
+                h = h.right;
             }
         }
 
-        // we now start traversing back to the root
-        // we pop node elements and directions
-        // and update parent nodes with modified nodes and perform re-balancing
-        // we do this, until we reach the end of the stack or root
-        Node node = null;
-        while (!nodeStack.isEmpty()) {
-            // pop the next node from the stack
-            node = nodeStack.pop();
-            // if the stack is non empty, this means the node has a parent.
-            // so update the parent with the modified node
-            if (!nodeStack.isEmpty()) {
-                // get parent of current node
-                Node parent = nodeStack.pop();
-                // if direction stored against current node was left, attach it to the left
-                if (isLeftDir.pop()) {
-                    parent.left = node;
-                } else {
-                    parent.right = node;// attach it to right
-                }
-                // balance the parent and push it back to the stack for the next iteration
-                nodeStack.push(balance(parent));
-            } else {
-                // if it was the last node i.e. parent/root perform balancing
-                balance(node);
-            }
+        // back up to the root: attach the modified child on its side, balance
+        while (depth > 0) {
+            Node p = path[--depth];
+            path[depth] = null;
+            if ((left >>> depth & 1) != 0) p.left = x;
+            else                           p.right = x;
+            x = balance(p);
         }
-        return node;
+        return x;
+    }
+
+    // key against h for the delete descent; the min/max node compares equal,
+    // everything else as if the key were smaller/larger than any in the tree
+    private int compare(Key key, Node h, int target) {
+        if (target == MIN) return h.left == null ? 0 : -1;
+        if (target == MAX) return h.right == null ? 0 : 1;
+        return key.compareTo(h.key);
     }
 
 
@@ -406,9 +335,29 @@ public class RedBlackBST<Key extends Comparable<Key>, Value> {
     public int height() {
         return height(root);
     }
+    // depth-first with the depth of every stacked node kept alongside it;
+    // at most one pending right child per level is ever on the stack
     private int height(Node x) {
         if (x == null) return -1;
-        return 1 + Math.max(height(x.left), height(x.right));
+        Node[] stack = stack(MAX_HEIGHT + 1);
+        int[] depths = new int[MAX_HEIGHT + 1];
+        int top = 0, height = 0;
+        stack[top] = x;
+        depths[top++] = 0;
+        while (top > 0) {
+            x = stack[--top];
+            int d = depths[top];
+            if (d > height) height = d;
+            if (x.right != null) {
+                stack[top] = x.right;
+                depths[top++] = d + 1;
+            }
+            if (x.left != null) {
+                stack[top] = x.left;
+                depths[top++] = d + 1;
+            }
+        }
+        return height;
     }
 
     public Key min() {
@@ -419,8 +368,9 @@ public class RedBlackBST<Key extends Comparable<Key>, Value> {
     // the smallest key in subtree rooted at x; null if no such key
     private Node min(Node x) {
         // assert x != null;
-        if (x.left == null) return x;
-        else                return min(x.left);
+        while (x.left != null)
+            x = x.left;
+        return x;
     }
 
     public Key max() {
@@ -431,8 +381,9 @@ public class RedBlackBST<Key extends Comparable<Key>, Value> {
     // the largest key in the subtree rooted at x; null if no such key
     private Node max(Node x) {
         // assert x != null;
-        if (x.right == null) return x;
-        else                 return max(x.right);
+        while (x.right != null)
+            x = x.right;
+        return x;
     }
 
     public Key floor(Key key) {
@@ -444,14 +395,20 @@ public class RedBlackBST<Key extends Comparable<Key>, Value> {
     }
 
     // the largest key in the subtree rooted at x less than or equal to the given key
+    // the last node we went right from is the best candidate so far
     private Node floor(Node x, Key key) {
-        if (x == null) return null;
-        int cmp = key.compareTo(x.key);
-        if (cmp == 0) return x;
-        if (cmp < 0)  return floor(x.left, key);
-        Node t = floor(x.right, key);
-        if (t != null) return t;
-        else           return x;
+        Node t = null;
+        while (x != null) {
+            int cmp = key.compareTo(x.key);
+            if (cmp == 0) return x;
+            if (cmp < 0) {
+                x = x.left;
+            } else {
+                t = x;
+                x = x.right;
+            }
+        }
+        return t;
     }
 
     public Key ceiling(Key key) {
@@ -463,14 +420,20 @@ public class RedBlackBST<Key extends Comparable<Key>, Value> {
     }
 
     // the smallest key in the subtree rooted at x greater than or equal to the given key
+    // the last node we went left from is the best candidate so far
     private Node ceiling(Node x, Key key) {
-        if (x == null) return null;
-        int cmp = key.compareTo(x.key);
-        if (cmp == 0) return x;
-        if (cmp > 0)  return ceiling(x.right, key);
-        Node t = ceiling(x.left, key);
-        if (t != null) return t;
-        else           return x;
+        Node t = null;
+        while (x != null) {
+            int cmp = key.compareTo(x.key);
+            if (cmp == 0) return x;
+            if (cmp > 0) {
+                x = x.right;
+            } else {
+                t = x;
+                x = x.left;
+            }
+        }
+        return t;
     }
 
     public Key select(int rank) {
@@ -483,11 +446,18 @@ public class RedBlackBST<Key extends Comparable<Key>, Value> {
     // Return key in BST rooted at x of given rank.
     // Precondition: rank is in legal range.
     private Key select(Node x, int rank) {
-        if (x == null) return null;
-        int leftSize = size(x.left);
-        if      (leftSize > rank) return select(x.left,  rank);
-        else if (leftSize < rank) return select(x.right, rank - leftSize - 1);
-        else                      return x.key;
+        while (x != null) {
+            int leftSize = size(x.left);
+            if (leftSize > rank) {
+                x = x.left;
+            } else if (leftSize < rank) {
+                rank -= leftSize + 1;
+                x = x.right;
+            } else {
+                return x.key;
+            }
+        }
+        return null;
     }
 
     public int rank(Key key) {
@@ -497,37 +467,268 @@ public class RedBlackBST<Key extends Comparable<Key>, Value> {
 
     // number of keys less than key in the subtree rooted at x
     private int rank(Key key, Node x) {
-        if (x == null) return 0;
-        int cmp = key.compareTo(x.key);
-        if      (cmp < 0) return rank(key, x.left);
-        else if (cmp > 0) return 1 + size(x.left) + rank(key, x.right);
-        else              return size(x.left);
+        int rank = 0;
+        while (x != null) {
+            int cmp = key.compareTo(x.key);
+            if (cmp < 0) {
+                x = x.left;
+            } else if (cmp > 0) {
+                rank += 1 + size(x.left);
+                x = x.right;
+            } else {
+                return rank + size(x.left);
+            }
+        }
+        return rank;
     }
 
+    // The ranges below are walked lazily: each iterator keeps only the
+    // path still to be visited, finding the first key in O(log n) and each
+    // next one in amortized O(1), so stopping early costs nothing and no
+    // range is copied. The tree must not be changed while iterating.
+
+    // what a range yields for each node; entries are snapshots, not views
+    private final Function<Node, Key> keyOf = x -> x.key;
+    private final Function<Node, Map.Entry<Key, Value>> entryOf =
+        x -> new AbstractMap.SimpleImmutableEntry<>(x.key, x.val);
+
     public Iterable<Key> keys() {
-        if (isEmpty()) return new Queue<Key>();
-        return keys(min(), max());
+        return new Range<>(null, null, false, keyOf);
     }
 
     public Iterable<Key> keys(Key lo, Key hi) {
         if (lo == null) throw new IllegalArgumentException("first argument to keys() is null");
         if (hi == null) throw new IllegalArgumentException("second argument to keys() is null");
+        return new Range<>(lo, hi, false, keyOf);
+    }
+
+    // the keys from largest to smallest
+    public Iterable<Key> descendingKeys() {
+        return new Range<>(null, null, true, keyOf);
+    }
+
+    // the keys between lo and hi, from hi down to lo
+    public Iterable<Key> descendingKeys(Key lo, Key hi) {
+        if (lo == null) throw new IllegalArgumentException("first argument to descendingKeys() is null");
+        if (hi == null) throw new IllegalArgumentException("second argument to descendingKeys() is null");
+        return new Range<>(lo, hi, true, keyOf);
+    }
+
+    // key-value pairs in key order
+    public Iterable<Map.Entry<Key, Value>> entries() {
+        return new Range<>(null, null, false, entryOf);
+    }
+
+    public Iterable<Map.Entry<Key, Value>> entries(Key lo, Key hi) {
+        if (lo == null) throw new IllegalArgumentException("first argument to entries() is null");
+        if (hi == null) throw new IllegalArgumentException("second argument to entries() is null");
+        return new Range<>(lo, hi, false, entryOf);
+    }
+
+    // the streams are sequential; parallel() splits them by subtree sizes
+    // into exact halves, see Split
+    public Stream<Key> keyStream() {
+        return StreamSupport.stream(keys().spliterator(), false);
+    }
+
+    // e.g. the first 100 keys >= x: keyStream(x, max()).limit(100)
+    public Stream<Key> keyStream(Key lo, Key hi) {
+        return StreamSupport.stream(keys(lo, hi).spliterator(), false);
+    }
+
+    public Stream<Map.Entry<Key, Value>> entryStream() {
+        return StreamSupport.stream(entries().spliterator(), false);
+    }
+
+    public Stream<Map.Entry<Key, Value>> entryStream(Key lo, Key hi) {
+        return StreamSupport.stream(entries(lo, hi).spliterator(), false);
+    }
+
+    // the nodes with keys between lo and hi (null for no bound) in either
+    // order, each seen through item
+    private class Range<T> implements Iterable<T> {
+        private final Key lo, hi;
+        private final boolean descending;
+        private final Function<Node, T> item;
+
+        Range(Key lo, Key hi, boolean descending, Function<Node, T> item) {
+            this.lo = lo;
+            this.hi = hi;
+            this.descending = descending;
+            this.item = item;
+        }
+
+        public Iterator<T> iterator() {
+            return new Walk<>(lo, hi, descending, item);
+        }
+
+        // the range as ranks [from, to), found in O(log n)
+        public Spliterator<T> spliterator() {
+            int from = lo == null ? 0 : rank(lo);
+            int to = hi == null ? size() : rank(hi) + (contains(hi) ? 1 : 0);
+            return new Split<>(from, Math.max(from, to), descending, item);
+        }
+
+        public String toString() {
+            StringBuilder s = new StringBuilder();
+            for (T t : this)
+                s.append(t).append(' ');
+            return s.toString();
+        }
+    }
+
+    // The spliterator of a range covers the ranks [from, to). Splitting
+    // needs no walk at all: the prefix gets the first half of the ranks and
+    // this one keeps the rest, so both sizes are exact (SIZED | SUBSIZED)
+    // and a parallel stream gets balanced tasks however the range sits in
+    // the tree. Only on its first element does a spliterator descend to its
+    // start rank by the subtree sizes, as select() does, stacking the nodes
+    // it passes that come later in its order; from there it steps like Walk.
+    // One split after traversal has begun hands the stack to the prefix.
+    private class Split<T> implements Spliterator<T> {
+        private int from, to;         // ranks still to be visited
+        private final boolean descending;
+        private final Function<Node, T> item;
+        private Node[] stack;         // null until the first element
+        private int top;
+
+        Split(int from, int to, boolean descending, Function<Node, T> item) {
+            this.from = from;
+            this.to = to;
+            this.descending = descending;
+            this.item = item;
+        }
+
+        // stack the path to the first rank in encounter order
+        private void start() {
+            stack = stack(MAX_HEIGHT);
+            int rank = descending ? to - 1 : from;
+            Node x = root;
+            while (x != null) {
+                int leftSize = size(x.left);
+                if (rank == leftSize) {
+                    stack[top++] = x;
+                    return;
+                }
+                if (rank < leftSize) {
+                    if (!descending) stack[top++] = x;
+                    x = x.left;
+                } else {
+                    if (descending) stack[top++] = x;
+                    rank -= leftSize + 1;
+                    x = x.right;
+                }
+            }
+        }
+
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (action == null) throw new NullPointerException();
+            if (from >= to) return false;
+            if (stack == null) start();
+            Node x = stack[--top];
+            stack[top] = null;
+            if (descending) {
+                for (Node y = x.left; y != null; y = y.right)
+                    stack[top++] = y;
+                to--;
+            } else {
+                for (Node y = x.right; y != null; y = y.left)
+                    stack[top++] = y;
+                from++;
+            }
+            action.accept(item.apply(x));
+            return true;
+        }
 
-        Queue<Key> queue = new Queue<Key>();
-        // if (isEmpty() || lo.compareTo(hi) > 0) return queue;
-        keys(root, queue, lo, hi);
-        return queue;
+        public Spliterator<T> trySplit() {
+            if (to - from < 2) return null;
+            int mid = (from + to) >>> 1;
+            Split<T> prefix;
+            if (descending) {
+                prefix = new Split<>(mid, to, true, item);
+                to = mid;
+            } else {
+                prefix = new Split<>(from, mid, false, item);
+                from = mid;
+            }
+            if (stack != null) {
+                // the stack is positioned at the prefix's first element
+                prefix.stack = stack;
+                prefix.top = top;
+                stack = null;
+                top = 0;
+            }
+            return prefix;
+        }
+
+        public long estimateSize() {
+            return to - from;
+        }
+
+        // ascending keys are SORTED in their natural order; entries and
+        // descending keys only ORDERED
+        public int characteristics() {
+            int c = ORDERED | DISTINCT | NONNULL | SIZED | SUBSIZED;
+            if (!descending && item == keyOf) c |= SORTED;
+            return c;
+        }
+
+        public Comparator<? super T> getComparator() {
+            if (hasCharacteristics(SORTED)) return null;
+            throw new IllegalStateException();
+        }
     }
 
-    // add the keys between lo and hi in the subtree rooted at x
-    // to the queue
-    private void keys(Node x, Queue<Key> queue, Key lo, Key hi) {
-        if (x == null) return;
-        int cmplo = lo.compareTo(x.key);
-        int cmphi = hi.compareTo(x.key);
-        if (cmplo < 0) keys(x.left, queue, lo, hi);
-        if (cmplo <= 0 && cmphi >= 0) queue.enqueue(x.key);
-        if (cmphi > 0) keys(x.right, queue, lo, hi);
+    // in-order walk with an explicit stack, forward (right) for ascending
+    // order and backward (left) for descending. It starts on the path to
+    // the first bound: a node before it is skipped along with its backward
+    // subtree, any other is stacked until its backward side is done. After
+    // that every stacked node lies inside the first bound, so the backward
+    // spine of each forward subtree is stacked whole. Nodes come off in
+    // order and the first one past the last bound ends the walk
+    private class Walk<T> implements Iterator<T> {
+        private final Node[] stack = stack(MAX_HEIGHT);
+        private final Key last;       // last bound; null for none
+        private final boolean descending;
+        private final Function<Node, T> item;
+        private int top;
+
+        Walk(Key lo, Key hi, boolean descending, Function<Node, T> item) {
+            this.descending = descending;
+            this.item = item;
+            Key first = descending ? hi : lo;
+            this.last = descending ? lo : hi;
+            Node x = root;
+            while (x != null) {
+                // > 0: x comes before the first bound
+                int cmp = first == null ? -1 : descending ? x.key.compareTo(first) : first.compareTo(x.key);
+                if (cmp > 0) {
+                    x = forward(x);
+                } else {
+                    stack[top++] = x;
+                    x = cmp < 0 ? backward(x) : null;
+                }
+            }
+        }
+
+        private Node forward(Node x)  { return descending ? x.left : x.right; }
+        private Node backward(Node x) { return descending ? x.right : x.left; }
+
+        public boolean hasNext() {
+            if (top == 0) return false;
+            if (last == null) return true;
+            int cmp = last.compareTo(stack[top - 1].key);
+            return descending ? cmp <= 0 : cmp >= 0;
+        }
+
+        public T next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            Node x = stack[--top];
+            stack[top] = null;
+            for (Node y = forward(x); y != null; y = backward(y))
+                stack[top++] = y;
+            return item.apply(x);
+        }
     }
 
     public int size(Key lo, Key hi) {
@@ -548,6 +749,9 @@ public class RedBlackBST<Key extends Comparable<Key>, Value> {
         return isBST() && isSizeConsistent() && isRankConsistent() && is23() && isBalanced();
     }
 
+    // the validators below walk trees that may be broken, so unlike the
+    // operations above their stacks grow past MAX_HEIGHT when they must
+
     // does this binary tree satisfy symmetric order?
     // Note: this test also ensures that data structure is a binary tree since order is strict
     private boolean isBST() {
@@ -556,20 +760,41 @@ public class RedBlackBST<Key extends Comparable<Key>, Value> {
 
     // is the tree rooted at x a BST with all keys strictly between min and max
     // (if min or max is null, treat as empty constraint)
-    // Credit: Bob Dondero's elegant solution
+    // in-order walk with an explicit stack: symmetric order holds exactly
+    // when every key is strictly greater than the one visited before it
     private boolean isBST(Node x, Key min, Key max) {
-        if (x == null) return true;
-        if (min != null && x.key.compareTo(min) <= 0) return false;
-        if (max != null && x.key.compareTo(max) >= 0) return false;
-        return isBST(x.left, min, x.key) && isBST(x.right, x.key, max);
+        Node[] stack = stack(MAX_HEIGHT);
+        int top = 0;
+        Key prev = min;
+        while (x != null || top > 0) {
+            while (x != null) {
+                if (top == stack.length) stack = Arrays.copyOf(stack, 2 * top);
+                stack[top++] = x;
+                x = x.left;
+            }
+            x = stack[--top];
+            if (prev != null && x.key.compareTo(prev) <= 0) return false;
+            prev = x.key;
+            x = x.right;
+        }
+        return max == null || prev == null || prev.compareTo(max) < 0;
     }
 
     // are the size fields correct?
     private boolean isSizeConsistent() { return isSizeConsistent(root); }
     private boolean isSizeConsistent(Node x) {
         if (x == null) return true;
-        if (x.size != size(x.left) + size(x.right) + 1) return false;
-        return isSizeConsistent(x.left) && isSizeConsistent(x.right);
+        Node[] stack = stack(MAX_HEIGHT + 1);
+        int top = 0;
+        stack[top++] = x;
+        while (top > 0) {
+            x = stack[--top];
+            if (x.size != size(x.left) + size(x.right) + 1) return false;
+            if (top + 2 > stack.length) stack = Arrays.copyOf(stack, 2 * stack.length);
+            if (x.right != null) stack[top++] = x.right;
+            if (x.left != null)  stack[top++] = x.left;
+        }
+        return true;
     }
 
     // check that ranks are consistent
@@ -586,10 +811,19 @@ public class RedBlackBST<Key extends Comparable<Key>, Value> {
     private boolean is23() { return is23(root); }
     private boolean is23(Node x) {
         if (x == null) return true;
-        if (isRed(x.right)) return false;
-        if (x != root && isRed(x) && isRed(x.left))
-            return false;
-        return is23(x.left) && is23(x.right);
+        Node[] stack = stack(MAX_HEIGHT + 1);
+        int top = 0;
+        stack[top++] = x;
+        while (top > 0) {
+            x = stack[--top];
+            if (isRed(x.right)) return false;
+            if (x != root && isRed(x) && isRed(x.left))
+                return false;
+            if (top + 2 > stack.length) stack = Arrays.copyOf(stack, 2 * stack.length);
+            if (x.right != null) stack[top++] = x.right;
+            if (x.left != null)  stack[top++] = x.left;
+        }
+        return true;
     }
 
     // do all paths from root to leaf have same number of black edges?
@@ -604,10 +838,31 @@ public class RedBlackBST<Key extends Comparable<Key>, Value> {
     }
 
     // does every path from the root to a leaf have the given number of black links?
+    // each stacked node (null links included) carries the count still owed below it
     private boolean isBalanced(Node x, int black) {
-        if (x == null) return black == 0;
-        if (!isRed(x)) black--;
-        return isBalanced(x.left, black) && isBalanced(x.right, black);
+        Node[] stack = stack(MAX_HEIGHT + 2);
+        int[] owed = new int[MAX_HEIGHT + 2];
+        int top = 0;
+        stack[top] = x;
+        owed[top++] = black;
+        while (top > 0) {
+            x = stack[--top];
+            black = owed[top];
+            if (x == null) {
+                if (black != 0) return false;
+                continue;
+            }
+            if (!isRed(x)) black--;
+            if (top + 2 > stack.length) {
+                stack = Arrays.copyOf(stack, 2 * stack.length);
+                owed = Arrays.copyOf(owed, 2 * owed.length);
+            }
+            stack[top] = x.right;
+            owed[top++] = black;
+            stack[top] = x.left;
+            owed[top++] = black;
+        }
+        return true;
     }
 
     // restore red-black tree invariant
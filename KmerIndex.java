@@ -0,0 +1,534 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+//DNA k-mer seed index over a target collection, so a query only gets
+//Smith-Waterman in small windows around its seed hits instead of against
+//every whole target.
+//A seed is a spaced pattern like "110111011": the '1's are the positions
+//that count (the weight, at most MAX_WEIGHT), all '1's is a plain k-mer.
+//Every window of every target whose care positions are all ACGT goes into
+//one of 4^weight buckets; a bucket is a sorted run of global window starts
+//(targets are stored back to back), found through an offsets table.
+//Built in parallel with a two-level radix sort of the windows by bucket.
+//The file holds the offsets, positions and residues as flat big-endian
+//sections that load() memory-maps as they are, so loading costs a few page
+//faults rather than a rebuild. Global positions are ints, so the targets
+//may total at most 2^31-1 residues.
+class KmerIndex {
+    static final int MAGIC = 0x4b4d4958;//"KMIX"
+    static final int VERSION = 1;
+    static final int MAX_WEIGHT = 12;//16M buckets, 64 MB of offsets
+    static final int CHUNK = 1 << 28;//positions per mapped IntBuffer, 1 GB
+    static final int BLOCK = 1 << 20;//window starts per build task
+    private static final byte[] BASE = new byte[128];
+    static {
+        Arrays.fill(BASE, (byte)-1);
+        BASE['A'] = BASE['a'] = 0;
+        BASE['C'] = BASE['c'] = 1;
+        BASE['G'] = BASE['g'] = 2;
+        BASE['T'] = BASE['t'] = 3;
+    }
+
+    //seed hits on one diagonal (target position - query position) of one target;
+    //qStart..qEnd spans the seeds on the query
+    record Diagonal(int target, int diagonal, int seeds, int qStart, int qEnd) {}
+
+    final String pattern;
+    final int span;
+    final int[] care;//offsets of the '1's in pattern
+    final String[] ids;
+    final int[] starts;//target t is residues[starts[t], starts[t+1])
+    final IntBuffer offsets;//bucket b is positions[offsets[b], offsets[b+1])
+    final IntBuffer[] positions;//CHUNK positions per buffer
+    final ByteBuffer residues;//ASCII
+
+    private KmerIndex(String pattern, String[] ids, int[] starts, IntBuffer offsets, IntBuffer[] positions,
+                      ByteBuffer residues) {
+        this.pattern = pattern;
+        this.span = pattern.length();
+        this.care = care(pattern);
+        this.ids = ids;
+        this.starts = starts;
+        this.offsets = offsets;
+        this.positions = positions;
+        this.residues = residues;
+    }
+
+    //contiguous seed of length k
+    public static String contiguous(int k){
+        return "1".repeat(k);
+    }
+
+    private static int[] care(String pattern){
+        int w = 0;
+        for(int i=0; i<pattern.length(); i++){
+            char c = pattern.charAt(i);
+            if(c != '0' && c != '1')
+                throw new IllegalArgumentException("seed pattern must be 0s and 1s: " + pattern);
+            if(c == '1')
+                w++;
+        }
+        if(w < 1 || w > MAX_WEIGHT || pattern.charAt(0) != '1' || pattern.charAt(pattern.length()-1) != '1')
+            throw new IllegalArgumentException("seed pattern needs 1 to " + MAX_WEIGHT
+                                               + " '1's and a '1' at each end: " + pattern);
+        int[] care = new int[w];
+        for(int i=0, k=0; i<pattern.length(); i++)
+            if(pattern.charAt(i) == '1')
+                care[k++] = i;
+        return care;
+    }
+
+    public static KmerIndex build(List<? extends CharSequence> targets, List<String> ids, String pattern,
+                                  int threads){
+        if(targets.size() != ids.size())
+            throw new IllegalArgumentException(targets.size() + " targets but " + ids.size() + " ids");
+        int[] starts = new int[targets.size()+1];
+        long total = 0;
+        for(int t=0; t<targets.size(); t++){
+            total += targets.get(t).length();
+            if(total > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("targets exceed " + Integer.MAX_VALUE + " residues");
+            starts[t+1] = (int)total;
+        }
+        byte[] res = new byte[(int)total];
+        for(int t=0, g=0; t<targets.size(); t++){
+            CharSequence s = targets.get(t);
+            for(int i=0; i<s.length(); i++)
+                res[g++] = (byte)s.charAt(i);
+        }
+        return build(pattern, ids.toArray(new String[0]), starts, res, threads);
+    }
+
+    //every record of a FASTA/FASTQ file
+    public static KmerIndex build(Path fasta, String pattern, int threads) throws IOException {
+        List<String> ids = new ArrayList<>();
+        List<Integer> starts = new ArrayList<>();
+        byte[] res = new byte[1 << 20];
+        long total = 0;
+        starts.add(0);
+        try(FastxReader in = new FastxReader(fasta)){
+            FastxReader.Record rec;
+            while((rec = in.next()) != null){
+                Sequence s = rec.seq();
+                if(total + s.length() > Integer.MAX_VALUE)
+                    throw new IOException(fasta + " exceeds " + Integer.MAX_VALUE + " residues");
+                if(total + s.length() > res.length)
+                    res = Arrays.copyOf(res, (int)Math.min(Integer.MAX_VALUE - 8, Math.max(2L*res.length, total + s.length())));
+                System.arraycopy(s.data, s.offset, res, (int)total, s.length());
+                total += s.length();
+                ids.add(rec.id().toString());
+                starts.add((int)total);
+            }
+        }
+        return build(pattern, ids.toArray(new String[0]), starts.stream().mapToInt(Integer::intValue).toArray(),
+                     Arrays.copyOf(res, (int)total), threads);
+    }
+
+    private interface Sink {
+        void accept(int code, int g);
+    }
+
+    //two-level radix build, so no pass scatters into the whole 4^w table at once:
+    //windows go to 4096 partitions by their high code bits (each block counts
+    //its own, blocks write in file order), then each partition is counting-sorted
+    //on the low bits into its buckets. Both passes are stable, so every bucket
+    //comes out in increasing position order whatever the thread count
+    private static KmerIndex build(String pattern, String[] ids, int[] starts, byte[] res, int threads){
+        int[] care = care(pattern);
+        int span = pattern.length(), buckets = 1 << 2*care.length;
+        int hiBits = Math.min(2*care.length, 12), loBits = 2*care.length - hiBits;
+        int parts = 1 << hiBits, lows = 1 << loBits;
+        int blocks = (res.length + BLOCK - 1)/BLOCK;
+        int[][] cursor = new int[blocks][parts];
+        int[] partStart = new int[parts+1];
+        int[] off = new int[buckets+1];
+        int[] pos;
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            run(pool, blocks, k -> windows(res, starts, care, span, k, (code, g) -> cursor[k][code >>> loBits]++));
+            long sum = 0;
+            for(int p=0; p<parts; p++){
+                partStart[p] = (int)sum;
+                for(int k=0; k<blocks; k++){
+                    int c = cursor[k][p];
+                    cursor[k][p] = (int)sum;
+                    sum += c;
+                }
+                if(sum > Integer.MAX_VALUE - 8)
+                    throw new IllegalArgumentException("more than " + (Integer.MAX_VALUE - 8) + " seed positions");
+            }
+            int n = partStart[parts] = (int)sum;
+            int[] byPart = new int[n];
+            short[] low = new short[n];
+            run(pool, blocks, k -> {
+                int[] cur = cursor[k];
+                windows(res, starts, care, span, k, (code, g) -> {
+                    int at = cur[code >>> loBits]++;
+                    byPart[at] = g;
+                    low[at] = (short)(code & (lows-1));
+                });
+            });
+            int[] all = pos = new int[n];
+            run(pool, parts, p -> {
+                int from = partStart[p], to = partStart[p+1];
+                int[] c = new int[lows+1];
+                for(int i=from; i<to; i++)
+                    c[low[i]+1]++;
+                for(int l=0; l<lows; l++){
+                    c[l+1] += c[l];
+                    off[(p << loBits) + l] = from + c[l];
+                }
+                for(int i=from; i<to; i++)
+                    all[from + c[low[i]]++] = byPart[i];
+            });
+            off[buckets] = n;
+        }
+        finally {
+            pool.shutdown();
+        }
+
+        IntBuffer[] chunks = new IntBuffer[Math.max(1, (pos.length + CHUNK - 1)/CHUNK)];
+        for(int c=0; c<chunks.length; c++)
+            chunks[c] = IntBuffer.wrap(pos, c*CHUNK, Math.min(CHUNK, pos.length - c*CHUNK)).slice();
+        return new KmerIndex(pattern, ids, starts, IntBuffer.wrap(off), chunks, ByteBuffer.wrap(res));
+    }
+
+    //f(0..n-1) in parallel on pool, waiting for all of them
+    private static void run(ForkJoinPool pool, int n, IntConsumer f){
+        try {
+            pool.submit(() -> IntStream.range(0, n).parallel().forEach(f)).get();
+        }
+        catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("index build interrupted", e);
+        }
+        catch(ExecutionException e){
+            throw new IllegalStateException("index build failed", e.getCause());
+        }
+    }
+
+    //hands every valid window starting in block k to sink; windows never cross targets
+    private static void windows(byte[] res, int[] starts, int[] care, int span, int k, Sink sink){
+        int total = starts[starts.length-1];
+        int g = k*BLOCK, end = Math.min(total, g + BLOCK);
+        int t = target(starts, g);
+        for(; g<end; g++){
+            while(g >= starts[t+1])
+                t++;
+            if(g + span > starts[t+1]){
+                g = starts[t+1] - 1;
+                continue;
+            }
+            int code = kmer(res, care, g);
+            if(code >= 0)
+                sink.accept(code, g);
+        }
+    }
+
+    //bucket of the window at res[g], -1 if a care position is not ACGT
+    private static int kmer(byte[] res, int[] care, int g){
+        int code = 0;
+        for(int c : care){
+            int r = res[g + c];
+            int b = r < 0 ? -1 : BASE[r];
+            if(b < 0)
+                return -1;
+            code = code << 2 | b;
+        }
+        return code;
+    }
+
+    //last non-empty target starting at or before g
+    private static int target(int[] starts, int g){
+        int lo = 0, hi = starts.length-2;
+        while(lo < hi){
+            int mid = (lo + hi + 1) >>> 1;
+            if(starts[mid] <= g)
+                lo = mid;
+            else
+                hi = mid - 1;
+        }
+        return lo;
+    }
+
+    public int targets(){
+        return this.ids.length;
+    }
+
+    public String id(int t){
+        return this.ids[t];
+    }
+
+    //residues of target t; a view, not a copy
+    public CharSequence target(int t){
+        return new Region(residues, starts[t], starts[t+1] - starts[t]);
+    }
+
+    private int position(long k){
+        return positions[(int)(k / CHUNK)].get((int)(k % CHUNK));
+    }
+
+    //seed hits of query grouped by target and diagonal, ordered that way;
+    //buckets holding more than maxOcc positions are skipped as repeats
+    public List<Diagonal> diagonals(CharSequence query, int maxOcc){
+        byte[] q = new byte[query.length()];
+        for(int i=0; i<q.length; i++){
+            char c = query.charAt(i);
+            q[i] = c < 128 ? (byte)c : (byte)'N';
+        }
+        Map<Long, int[]> byDiagonal = new HashMap<>();//{seeds, qStart, qEnd}
+        for(int p=0; p+span<=q.length; p++){
+            int code = kmer(q, care, p);
+            if(code < 0)
+                continue;
+            int from = offsets.get(code), to = offsets.get(code+1);
+            if(to - from > maxOcc)
+                continue;
+            for(int k=from; k<to; k++){
+                int g = position(k), t = target(starts, g);
+                int d = g - starts[t] - p;
+                int[] v = byDiagonal.get((long)t << 32 | (d & 0xffffffffL));
+                if(v == null)
+                    byDiagonal.put((long)t << 32 | (d & 0xffffffffL), v = new int[]{0, p, 0});
+                v[0]++;
+                v[2] = p + span;
+            }
+        }
+        List<Diagonal> res = new ArrayList<>(byDiagonal.size());
+        for(Map.Entry<Long, int[]> en : byDiagonal.entrySet()){
+            long key = en.getKey();
+            int[] v = en.getValue();
+            res.add(new Diagonal((int)(key >>> 32), (int)key, v[0], v[1], v[2]));
+        }
+        res.sort(Comparator.comparingInt(Diagonal::target).thenComparingInt(Diagonal::diagonal));
+        return res;
+    }
+
+    //seed-and-extend: diagonals of one target within window of each other are
+    //merged, and each merged group is aligned with swScore/swStart over its
+    //query span and diagonal range padded by window on every side. Best k
+    //distinct hits, highest score first
+    public List<Hit> search(CharSequence query, ScoringScheme s, int maxOcc, int window, int k){
+        List<Diagonal> diags = diagonals(query, maxOcc);
+        List<Hit> hits = new ArrayList<>();
+        int m = query.length();
+        for(int a=0; a<diags.size(); ){
+            Diagonal first = diags.get(a);
+            int t = first.target(), dLo = first.diagonal(), dHi = dLo, qLo = first.qStart(), qHi = first.qEnd();
+            for(a++; a<diags.size() && diags.get(a).target() == t && diags.get(a).diagonal() - dHi <= window; a++){
+                Diagonal d = diags.get(a);
+                dHi = d.diagonal();
+                qLo = Math.min(qLo, d.qStart());
+                qHi = Math.max(qHi, d.qEnd());
+            }
+            int len = starts[t+1] - starts[t];
+            int qa = Math.max(0, qLo - window), qb = Math.min(m, qHi + window);
+            int ta = Math.max(0, qa + dLo - window), tb = Math.min(len, qb + dHi + window);
+            if(ta >= tb)
+                continue;
+            CharSequence X = new Region(residues, starts[t] + ta, tb - ta), Y = query.subSequence(qa, qb);
+            ScoreResult r = SmithWaterman.swScore(X, Y, s);
+            if(r.score() == 0)
+                continue;
+            int[] st = SmithWaterman.swStart(X, Y, s, r.i(), r.j(), r.score());
+            hits.add(new Hit(ids[t], t, r.score(), ta + st[0], ta + r.i(), qa + st[1], qa + r.j()));
+        }
+        return hits.stream().distinct()
+            .sorted(Comparator.comparingInt(Hit::score).reversed().thenComparingLong(Hit::index).thenComparingInt(Hit::tStart))
+            .limit(k).toList();
+    }
+
+    //magic, version, pattern, ids, starts, offsets, positions, residues;
+    //strings are an int byte count and UTF-8
+    public void write(Path file) throws IOException {
+        ByteArrayOutputStream head = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(head);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        writeString(out, pattern);
+        out.writeInt(ids.length);
+        for(String id : ids)
+            writeString(out, id);
+        for(int s : starts)
+            out.writeInt(s);
+        try(FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                              StandardOpenOption.TRUNCATE_EXISTING)){
+            writeFully(ch, ByteBuffer.wrap(head.toByteArray()));
+            ByteBuffer buf = ByteBuffer.allocate(1 << 20);
+            writeInts(ch, buf, offsets.duplicate());
+            for(IntBuffer chunk : positions)
+                writeInts(ch, buf, chunk.duplicate());
+            writeFully(ch, residues.duplicate().clear());
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] b = new byte[in.readInt()];
+        in.readFully(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private static void writeInts(FileChannel ch, ByteBuffer buf, IntBuffer src) throws IOException {
+        src.clear();
+        while(src.hasRemaining()){
+            buf.clear();
+            IntBuffer view = buf.asIntBuffer();
+            int n = Math.min(view.capacity(), src.remaining());
+            view.put(src.slice().limit(n));
+            src.position(src.position() + n);
+            buf.limit(4*n);
+            writeFully(ch, buf);
+        }
+    }
+
+    private static void writeFully(FileChannel ch, ByteBuffer b) throws IOException {
+        while(b.hasRemaining())
+            ch.write(b);
+    }
+
+    //maps the offsets, positions and residues sections read-only in place
+    public static KmerIndex load(Path file) throws IOException {
+        String pattern;
+        String[] ids;
+        int[] starts;
+        long at;
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))){
+            if(in.readInt() != MAGIC)
+                throw new IOException(file + " is not a k-mer index");
+            int version = in.readInt();
+            if(version != VERSION)
+                throw new IOException(file + " is index version " + version + ", expected " + VERSION);
+            pattern = readString(in);
+            at = 8 + 4 + pattern.getBytes(StandardCharsets.UTF_8).length;
+            ids = new String[in.readInt()];
+            at += 4;
+            for(int t=0; t<ids.length; t++){
+                ids[t] = readString(in);
+                at += 4 + ids[t].getBytes(StandardCharsets.UTF_8).length;
+            }
+            starts = new int[ids.length+1];
+            for(int t=0; t<starts.length; t++)
+                starts[t] = in.readInt();
+            at += 4L*starts.length;
+        }
+        int buckets = 1 << 2*care(pattern).length;
+        try(FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)){
+            IntBuffer offsets = ch.map(FileChannel.MapMode.READ_ONLY, at, 4L*(buckets+1)).asIntBuffer();
+            at += 4L*(buckets+1);
+            int n = offsets.get(buckets);
+            IntBuffer[] chunks = new IntBuffer[Math.max(1, (n + CHUNK - 1)/CHUNK)];
+            for(int c=0; c<chunks.length; c++){
+                int len = Math.min(CHUNK, n - c*CHUNK);
+                chunks[c] = ch.map(FileChannel.MapMode.READ_ONLY, at, 4L*len).asIntBuffer();
+                at += 4L*len;
+            }
+            int total = starts[ids.length];
+            if(at + total != ch.size())
+                throw new IOException(file + " is " + ch.size() + " bytes, expected " + (at + total));
+            ByteBuffer residues = ch.map(FileChannel.MapMode.READ_ONLY, at, total);
+            return new KmerIndex(pattern, ids, starts, offsets, chunks, residues);
+        }
+    }
+
+    //residues [from, from+length) of a buffer, heap or mapped
+    private static final class Region implements CharSequence {
+        final ByteBuffer buf;
+        final int from, length;
+
+        Region(ByteBuffer buf, int from, int length) {
+            this.buf = buf;
+            this.from = from;
+            this.length = length;
+        }
+
+        @Override
+        public int length(){
+            return this.length;
+        }
+
+        @Override
+        public char charAt(int i){
+            if(i < 0 || i >= length)
+                throw new IndexOutOfBoundsException(i);
+            return (char)(buf.get(from+i) & 0xff);
+        }
+
+        @Override
+        public CharSequence subSequence(int a, int b){
+            if(a < 0 || b > length || a > b)
+                throw new IndexOutOfBoundsException("slice " + a + ".." + b + " of " + length);
+            return new Region(buf, from+a, b-a);
+        }
+
+        @Override
+        public String toString(){
+            byte[] b = new byte[length];
+            buf.get(from, b);
+            return new String(b, StandardCharsets.US_ASCII);
+        }
+    }
+
+    //java KmerIndex build [-p 11111111111] [-t threads] db.fa db.idx
+    //java KmerIndex search [-k 10] [-w 64] [-m 1000] [-s linear] db.idx query.fa
+    public static void main(String[] args) throws IOException {
+        String pattern = contiguous(11);
+        ScoringScheme scheme = ScoringScheme.LINEAR;
+        int threads = Runtime.getRuntime().availableProcessors(), k = 10, window = 64, maxOcc = 1000, a = 1;
+        while(a < args.length && args[a].startsWith("-")){
+            if(args[a].equals("-p")) pattern = args[++a];
+            else if(args[a].equals("-t")) threads = Integer.parseInt(args[++a]);
+            else if(args[a].equals("-k")) k = Integer.parseInt(args[++a]);
+            else if(args[a].equals("-w")) window = Integer.parseInt(args[++a]);
+            else if(args[a].equals("-m")) maxOcc = Integer.parseInt(args[++a]);
+            else if(args[a].equals("-s")) scheme = ScoringScheme.named(args[++a]);
+            else throw new IllegalArgumentException("unknown option " + args[a]);
+            a++;
+        }
+        if(args.length - a != 2 || !(args[0].equals("build") || args[0].equals("search"))){
+            System.err.println("usage: KmerIndex build [-p seed] [-t threads] db.fa db.idx");
+            System.err.println("       KmerIndex search [-k hits] [-w window] [-m maxOcc] [-s linear|blosum62|pam250] db.idx query.fa");
+            System.exit(2);
+        }
+        if(args[0].equals("build")){
+            long start = System.nanoTime();
+            KmerIndex idx = build(Paths.get(args[a]), pattern, threads);
+            idx.write(Paths.get(args[a+1]));
+            System.err.printf("%d targets, %d residues, %d seeds, %.1f s%n", idx.targets(),
+                              idx.starts[idx.targets()], idx.offsets.get(idx.offsets.limit()-1),
+                              (System.nanoTime() - start)/1e9);
+            return;
+        }
+        KmerIndex idx = load(Paths.get(args[a]));
+        Sequence query = FastxReader.first(Paths.get(args[a+1]));
+        System.out.println("target\tscore\ttStart\ttEnd\tqStart\tqEnd");
+        for(Hit h : idx.search(query, scheme, maxOcc, window, k))
+            System.out.println(h);
+    }
+}
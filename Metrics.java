@@ -0,0 +1,55 @@
+import java.util.concurrent.atomic.LongAdder;
+
+//Where alignment time goes: what Probe hands over after each fill,
+//traceback or read/print. Set Probe.sink to collect somewhere else;
+//the default is a Totals. Allocated counts bytes the calling thread
+//allocated during the phase (-1 where the JVM cannot tell).
+interface Metrics {
+    void fill(String engine, long cells, long nanos, long allocated);
+    void traceback(String engine, long columns, long nanos, long allocated);
+    void io(String what, long bytes, long nanos);
+
+    //running sums over all threads
+    class Totals implements Metrics {
+        final LongAdder fills = new LongAdder(), cells = new LongAdder(), fillNanos = new LongAdder();
+        final LongAdder tracebacks = new LongAdder(), tracebackNanos = new LongAdder();
+        final LongAdder ioBytes = new LongAdder(), ioNanos = new LongAdder();
+        final LongAdder fillAllocated = new LongAdder(), tracebackAllocated = new LongAdder();
+
+        @Override
+        public void fill(String engine, long cells, long nanos, long allocated){
+            this.fills.increment();
+            this.cells.add(cells);
+            this.fillNanos.add(nanos);
+            this.fillAllocated.add(Math.max(allocated, 0));
+        }
+
+        @Override
+        public void traceback(String engine, long columns, long nanos, long allocated){
+            this.tracebacks.increment();
+            this.tracebackNanos.add(nanos);
+            this.tracebackAllocated.add(Math.max(allocated, 0));
+        }
+
+        @Override
+        public void io(String what, long bytes, long nanos){
+            this.ioBytes.add(bytes);
+            this.ioNanos.add(nanos);
+        }
+
+        //giga cell updates per second over fill time only
+        public double gcups(){
+            long ns = fillNanos.sum();
+            return ns == 0 ? 0 : (double)cells.sum()/ns;
+        }
+
+        @Override
+        public String toString() {
+            long f = fills.sum(), t = tracebacks.sum();
+            return String.format("%d fills, %d cells, fill %.3f ms (%.3f GCUPS), %d tracebacks, traceback %.3f ms, io %.3f ms (%d bytes), "
+                                 + "%d bytes allocated per fill, %d per traceback",
+                                 f, cells.sum(), fillNanos.sum()/1e6, gcups(), t, tracebackNanos.sum()/1e6,
+                                 ioNanos.sum()/1e6, ioBytes.sum(), fillAllocated.sum()/Math.max(f, 1), tracebackAllocated.sum()/Math.max(t, 1));
+        }
+    }
+}
@@ -0,0 +1,76 @@
+//Nucleotides at 2 bits each (A=0, C=1, G=2, T=3), 32 to a long, so a
+//genome takes a quarter of its byte form. Only ACGT (either case) can be
+//packed; anything else, N included, is rejected. Slices share the words.
+class PackedSequence implements CharSequence {
+    static final String BASES = "ACGT";
+
+    final long[] bits;
+    final long offset;//in bases
+    final int length;
+
+    private PackedSequence(long[] bits, long offset, int length) {
+        this.bits = bits;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    public static PackedSequence of(CharSequence s){
+        int n = s.length();
+        long[] bits = new long[(n + 31)/32];
+        for(int i=0; i<n; i++){
+            char c = s.charAt(i);
+            long b;
+            switch(c){
+                case 'A': case 'a': b = 0; break;
+                case 'C': case 'c': b = 1; break;
+                case 'G': case 'g': b = 2; break;
+                case 'T': case 't': b = 3; break;
+                default: throw new IllegalArgumentException("'" + c + "' at " + i + " is not in " + BASES);
+            }
+            bits[i >>> 5] |= b << ((i & 31) << 1);
+        }
+        return new PackedSequence(bits, 0, n);
+    }
+
+    //0..3 for A, C, G, T
+    public int code(int i){
+        long k = offset + i;
+        return (int)(bits[(int)(k >>> 5)] >>> ((k & 31) << 1)) & 3;
+    }
+
+    @Override
+    public int length(){
+        return this.length;
+    }
+
+    @Override
+    public char charAt(int i){
+        if(i < 0 || i >= length)
+            throw new IndexOutOfBoundsException(i);
+        return BASES.charAt(code(i));
+    }
+
+    public PackedSequence slice(int from, int to){
+        if(from < 0 || to > length || from > to)
+            throw new IndexOutOfBoundsException("slice " + from + ".." + to + " of " + length);
+        return new PackedSequence(bits, offset+from, to-from);
+    }
+
+    @Override
+    public PackedSequence subSequence(int from, int to){
+        return slice(from, to);
+    }
+
+    //byte form, one ASCII residue per byte
+    public Sequence unpack(){
+        byte[] b = new byte[length];
+        for(int i=0; i<length; i++)
+            b[i] = (byte)BASES.charAt(code(i));
+        return new Sequence(b, 0, length);
+    }
+
+    @Override
+    public String toString(){
+        return unpack().toString();
+    }
+}
@@ -0,0 +1,658 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// RedBlackBST with its nodes kept in arrays instead of one object each.
+// A node is an int index x: keys[x] and vals[x] hold its key and value, and
+// links[3x .. 3x+2] the indices of its left and right children and its
+// subtree count with the color in the sign bit. The three ints sit side by
+// side because a descent reads them together; in three separate arrays
+// every level costs three cache misses instead of one. Slot 0 is the null
+// link, so size(0) is 0 and the null link is black without a check.
+// Deleted slots are chained through their left link into a free list and
+// reused by put. The links can be put off-heap in a direct buffer, where
+// the GC never scans or copies them; keys and values are references and
+// stay on the heap either way. The algorithms are those of the iterative
+// RedBlackBST.
+public class PooledRedBlackBST<Key extends Comparable<Key>, Value> {
+
+    private static final int RED = 0x80000000;   // color bit of the count; clear is black
+    private static final int NIL = 0;            // the null link
+
+    // 2 lg n levels at most for any int size, plus one for a rotation made
+    // on the way down in delete
+    private static final int MAX_HEIGHT = 64;
+    // most slots the link array can hold, on and off the heap
+    private static final int MAX_SLOTS = (Integer.MAX_VALUE - 8) / 12;
+
+    private final boolean offHeap;
+    private int[] links;        // on the heap
+    private IntBuffer linkBuf;  // off the heap
+    private Key[] keys;
+    private Object[] vals;
+    private int capacity;  // slots allocated, the null link included
+    private int next = 1;  // first slot never used
+    private int free;      // head of the free list; NIL if empty
+
+    private int root;      // root of the BST
+    // put/delete save their descent here instead of in a fresh Stack per call
+    private final int[] path = new int[MAX_HEIGHT];
+
+    // what the delete descent removes: the given key, the minimum or the maximum
+    private static final int KEY = 0, MIN = 1, MAX = 2;
+
+    public PooledRedBlackBST() {
+        this(16);
+    }
+
+    public PooledRedBlackBST(int initialCapacity) {
+        this(initialCapacity, false);
+    }
+
+    private PooledRedBlackBST(int initialCapacity, boolean offHeap) {
+        if (initialCapacity < 0) throw new IllegalArgumentException("negative capacity: " + initialCapacity);
+        this.offHeap = offHeap;
+        grow(Math.max(initialCapacity + 1, 2));
+    }
+
+    // a tree whose links and counts live in direct buffers
+    public static <Key extends Comparable<Key>, Value> PooledRedBlackBST<Key, Value> offHeap(int initialCapacity) {
+        return new PooledRedBlackBST<>(initialCapacity, true);
+    }
+
+    // the arrays at the given capacity, contents kept
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void grow(int cap) {
+        if (offHeap) {
+            IntBuffer b = ByteBuffer.allocateDirect(cap * 12).order(ByteOrder.nativeOrder()).asIntBuffer();
+            if (linkBuf != null) b.put(linkBuf.duplicate().clear());
+            linkBuf = b;
+        } else {
+            links = links == null ? new int[3 * cap] : Arrays.copyOf(links, 3 * cap);
+        }
+        keys = keys == null ? (Key[]) new Comparable[cap] : Arrays.copyOf(keys, cap);
+        vals = vals == null ? new Object[cap] : Arrays.copyOf(vals, cap);
+        capacity = cap;
+    }
+
+    // a slot for a new node: the last one freed, else the next never used
+    private int allocate() {
+        if (free != NIL) {
+            int x = free;
+            free = left(x);
+            return x;
+        }
+        if (next == capacity) {
+            if (capacity == MAX_SLOTS) throw new IllegalStateException("tree is full: " + (capacity - 1) + " keys");
+            grow((int) Math.min((long) capacity * 2, MAX_SLOTS));
+        }
+        return next++;
+    }
+
+    private void release(int x) {
+        keys[x] = null;
+        vals[x] = null;
+        setMeta(x, 0);
+        setRight(x, NIL);
+        setLeft(x, free);
+        free = x;
+    }
+
+    private int left(int x)             { return offHeap ? linkBuf.get(3 * x) : links[3 * x]; }
+    private int right(int x)            { return offHeap ? linkBuf.get(3 * x + 1) : links[3 * x + 1]; }
+    private int meta(int x)             { return offHeap ? linkBuf.get(3 * x + 2) : links[3 * x + 2]; }
+    private void setLeft(int x, int y)  { if (offHeap) linkBuf.put(3 * x, y); else links[3 * x] = y; }
+    private void setRight(int x, int y) { if (offHeap) linkBuf.put(3 * x + 1, y); else links[3 * x + 1] = y; }
+    private void setMeta(int x, int m)  { if (offHeap) linkBuf.put(3 * x + 2, m); else links[3 * x + 2] = m; }
+
+    // is node x red; false if x is null ?
+    private boolean isRed(int x) {
+        return meta(x) < 0;
+    }
+
+    // number of node in subtree rooted at x; 0 if x is null
+    private int size(int x) {
+        return meta(x) & ~RED;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Value val(int x) {
+        return (Value) vals[x];
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    public boolean isEmpty() {
+        return root == NIL;
+    }
+
+    public Value get(Key key) {
+        if (key == null) throw new IllegalArgumentException("argument to get() is null");
+        int x = root;
+        while (x != NIL) {
+            int cmp = key.compareTo(keys[x]);
+            if      (cmp < 0) x = left(x);
+            else if (cmp > 0) x = right(x);
+            else              return val(x);
+        }
+        return null;
+    }
+
+    public boolean contains(Key key) {
+        return get(key) != null;
+    }
+
+    public void put(Key key, Value val) {
+        if (key == null) throw new IllegalArgumentException("first argument to put() is null");
+        if (val == null) {
+            delete(key);
+            return;
+        }
+
+        // one descent: an existing key just gets the new value
+        int h = root;
+        int[] path = this.path;
+        long went = 0;// bit d set: the path went left at depth d
+        int depth = 0;
+        while (h != NIL) {
+            int cmp = key.compareTo(keys[h]);
+            if (cmp == 0) {
+                vals[h] = val;
+                return;
+            }
+            path[depth] = h;
+            if (cmp < 0) {
+                went |= 1L << depth;
+                h = left(h);
+            } else {
+                h = right(h);
+            }
+            depth++;
+        }
+
+        // new key: take a slot where the search fell off and fix up the
+        // saved path on the way back, as in RedBlackBST.put
+        int x = allocate();
+        keys[x] = key;
+        vals[x] = val;
+        setLeft(x, NIL);
+        setRight(x, NIL);
+        setMeta(x, RED | 1);
+        while (depth > 0) {
+            int p = path[--depth];
+            if ((went >>> depth & 1) != 0) setLeft(p, x);
+            else                           setRight(p, x);
+            setMeta(p, meta(p) + 1);
+            if (isRed(right(p)) && !isRed(left(p)))      p = rotateLeft(p);
+            if (isRed(left(p)) && isRed(left(left(p))))  p = rotateRight(p);
+            if (isRed(left(p)) && isRed(right(p)))       flipColors(p);
+            x = p;
+        }
+        root = x;
+        setMeta(root, meta(root) & ~RED);
+        // assert check();
+    }
+
+    public void deleteMin() {
+        if (isEmpty()) throw new NoSuchElementException("BST underflow");
+        fixupRoot();
+        root = delete(root, null, MIN);
+        if (!isEmpty()) setMeta(root, meta(root) & ~RED);
+        // assert check();
+    }
+
+    public void deleteMax() {
+        if (isEmpty()) throw new NoSuchElementException("BST underflow");
+        fixupRoot();
+        root = delete(root, null, MAX);
+        if (!isEmpty()) setMeta(root, meta(root) & ~RED);
+        // assert check();
+    }
+
+    private void fixupRoot() {
+        // if both children of root are black, set root to red
+        if (!isRed(left(root)) && !isRed(right(root))) {
+            setMeta(root, meta(root) | RED);
+        }
+    }
+
+    public void delete(Key key) {
+        if (key == null)
+            throw new IllegalArgumentException("argument to delete() is null");
+        if (isEmpty())
+            return;
+
+        fixupRoot();
+
+        root = delete(root, key, KEY);
+        if (!isEmpty())
+            setMeta(root, meta(root) & ~RED);
+        // assert check();
+    }
+
+    // the single-descent delete of RedBlackBST, see there; the node that
+    // is unlinked goes to the free list
+    private int delete(int h, Key key, int target) {
+        int[] path = this.path;
+        long went = 0;// bit d set: the path went left at depth d
+        int depth = 0;
+        int x;// what takes the place of the subtree the descent ended in
+        while (true) {
+            int cmp = compare(key, h, target);
+            if (cmp < 0) {
+                if (left(h) == NIL) {
+                    // key is not in the tree
+                    x = balance(h);
+                    break;
+                }
+                if (!isRed(left(h)) && !isRed(left(left(h))))
+                    h = moveRedLeft(h);
+                path[depth] = h;
+                went |= 1L << depth;
+                depth++;
+                h = left(h);
+            } else {
+                if (isRed(left(h))) {
+                    h = rotateRight(h);
+                    cmp = compare(key, h, target);
+                }
+                if (right(h) == NIL) {
+                    // a match here has no right child and so is a leaf
+                    if (cmp == 0) {
+                        release(h);
+                        x = NIL;
+                    } else {
+                        x = balance(h);
+                    }
+                    break;
+                }
+                if (!isRed(right(h)) && !isRed(left(right(h)))) {
+                    h = moveRedRight(h);
+                    cmp = compare(key, h, target);
+                }
+                if (cmp == 0) {
+                    int m = min(right(h));
+                    keys[h] = keys[m];
+                    vals[h] = vals[m];
+                    target = MIN;
+                }
+                path[depth] = h;
+                depth++;
+                h = right(h);
+            }
+        }
+
+        // back up to the root: attach the modified child on its side, balance
+        while (depth > 0) {
+            int p = path[--depth];
+            if ((went >>> depth & 1) != 0) setLeft(p, x);
+            else                           setRight(p, x);
+            x = balance(p);
+        }
+        return x;
+    }
+
+    // key against h for the delete descent; the min/max node compares equal,
+    // everything else as if the key were smaller/larger than any in the tree
+    private int compare(Key key, int h, int target) {
+        if (target == MIN) return left(h) == NIL ? 0 : -1;
+        if (target == MAX) return right(h) == NIL ? 0 : 1;
+        return key.compareTo(keys[h]);
+    }
+
+    // make a left-leaning link lean to the right; x takes over the color
+    // and count of h, which turns red
+    private int rotateRight(int h) {
+        // assert (h != NIL) && isRed(left(h));
+        int x = left(h);
+        setLeft(h, right(x));
+        setRight(x, h);
+        setMeta(x, meta(h));
+        setMeta(h, RED | (size(left(h)) + size(right(h)) + 1));
+        return x;
+    }
+
+    // make a right-leaning link lean to the left
+    private int rotateLeft(int h) {
+        // assert (h != NIL) && isRed(right(h));
+        int x = right(h);
+        setRight(h, left(x));
+        setLeft(x, h);
+        setMeta(x, meta(h));
+        setMeta(h, RED | (size(left(h)) + size(right(h)) + 1));
+        return x;
+    }
+
+    // flip the colors of a node and its two children
+    private void flipColors(int h) {
+        // h must have opposite color of its two children
+        // assert (h != NIL) && (left(h) != NIL) && (right(h) != NIL);
+        setMeta(h, meta(h) ^ RED);
+        setMeta(left(h), meta(left(h)) ^ RED);
+        setMeta(right(h), meta(right(h)) ^ RED);
+    }
+
+    // Assuming that h is red and both h.left and h.left.left
+    // are black, make h.left or one of its children red.
+    private int moveRedLeft(int h) {
+        flipColors(h);
+        if (isRed(left(right(h)))) {
+            setRight(h, rotateRight(right(h)));
+            h = rotateLeft(h);
+            flipColors(h);
+        }
+        return h;
+    }
+
+    // Assuming that h is red and both h.right and h.right.left
+    // are black, make h.right or one of its children red.
+    private int moveRedRight(int h) {
+        flipColors(h);
+        if (isRed(left(left(h)))) {
+            h = rotateRight(h);
+            flipColors(h);
+        }
+        return h;
+    }
+
+    // restore red-black tree invariant
+    private int balance(int h) {
+        // assert (h != NIL);
+
+        if (isRed(right(h)))                       h = rotateLeft(h);
+        if (isRed(left(h)) && isRed(left(left(h)))) h = rotateRight(h);
+        if (isRed(left(h)) && isRed(right(h)))     flipColors(h);
+        setMeta(h, (meta(h) & RED) | (size(left(h)) + size(right(h)) + 1));
+        return h;
+    }
+
+    public int height() {
+        return height(root);
+    }
+
+    // depth-first with the depth of every stacked node kept alongside it;
+    // at most one pending right child per level is ever on the stack
+    private int height(int x) {
+        if (x == NIL) return -1;
+        int[] stack = new int[MAX_HEIGHT + 1];
+        int[] depths = new int[MAX_HEIGHT + 1];
+        int top = 0, height = 0;
+        stack[top] = x;
+        depths[top++] = 0;
+        while (top > 0) {
+            x = stack[--top];
+            int d = depths[top];
+            if (d > height) height = d;
+            if (right(x) != NIL) {
+                stack[top] = right(x);
+                depths[top++] = d + 1;
+            }
+            if (left(x) != NIL) {
+                stack[top] = left(x);
+                depths[top++] = d + 1;
+            }
+        }
+        return height;
+    }
+
+    public Key min() {
+        if (isEmpty()) throw new NoSuchElementException("calls min() with empty symbol table");
+        return keys[min(root)];
+    }
+
+    // the node with the smallest key in subtree rooted at x
+    private int min(int x) {
+        // assert x != NIL;
+        while (left(x) != NIL)
+            x = left(x);
+        return x;
+    }
+
+    public Key max() {
+        if (isEmpty()) throw new NoSuchElementException("calls max() with empty symbol table");
+        int x = root;
+        while (right(x) != NIL)
+            x = right(x);
+        return keys[x];
+    }
+
+    // the largest key less than or equal to the given key
+    // the last node we went right from is the best candidate so far
+    public Key floor(Key key) {
+        if (key == null) throw new IllegalArgumentException("argument to floor() is null");
+        if (isEmpty()) throw new NoSuchElementException("calls floor() with empty symbol table");
+        int x = root, t = NIL;
+        while (x != NIL) {
+            int cmp = key.compareTo(keys[x]);
+            if (cmp == 0) return keys[x];
+            if (cmp < 0) {
+                x = left(x);
+            } else {
+                t = x;
+                x = right(x);
+            }
+        }
+        if (t == NIL) throw new NoSuchElementException("argument to floor() is too small");
+        else          return keys[t];
+    }
+
+    // the smallest key greater than or equal to the given key
+    // the last node we went left from is the best candidate so far
+    public Key ceiling(Key key) {
+        if (key == null) throw new IllegalArgumentException("argument to ceiling() is null");
+        if (isEmpty()) throw new NoSuchElementException("calls ceiling() with empty symbol table");
+        int x = root, t = NIL;
+        while (x != NIL) {
+            int cmp = key.compareTo(keys[x]);
+            if (cmp == 0) return keys[x];
+            if (cmp > 0) {
+                x = right(x);
+            } else {
+                t = x;
+                x = left(x);
+            }
+        }
+        if (t == NIL) throw new NoSuchElementException("argument to ceiling() is too large");
+        else          return keys[t];
+    }
+
+    public Key select(int rank) {
+        if (rank < 0 || rank >= size()) {
+            throw new IllegalArgumentException("argument to select() is invalid: " + rank);
+        }
+        int x = root;
+        while (true) {
+            int leftSize = size(left(x));
+            if (leftSize > rank) {
+                x = left(x);
+            } else if (leftSize < rank) {
+                rank -= leftSize + 1;
+                x = right(x);
+            } else {
+                return keys[x];
+            }
+        }
+    }
+
+    // number of keys less than key
+    public int rank(Key key) {
+        if (key == null) throw new IllegalArgumentException("argument to rank() is null");
+        int rank = 0, x = root;
+        while (x != NIL) {
+            int cmp = key.compareTo(keys[x]);
+            if (cmp < 0) {
+                x = left(x);
+            } else if (cmp > 0) {
+                rank += 1 + size(left(x));
+                x = right(x);
+            } else {
+                return rank + size(left(x));
+            }
+        }
+        return rank;
+    }
+
+    public Iterable<Key> keys() {
+        return () -> new Keys(null, null);
+    }
+
+    // the keys between lo and hi in ascending order, found as the iterator
+    // is advanced; the tree must not be changed while iterating
+    public Iterable<Key> keys(Key lo, Key hi) {
+        if (lo == null) throw new IllegalArgumentException("first argument to keys() is null");
+        if (hi == null) throw new IllegalArgumentException("second argument to keys() is null");
+        return () -> new Keys(lo, hi);
+    }
+
+    public int size(Key lo, Key hi) {
+        if (lo == null) throw new IllegalArgumentException("first argument to size() is null");
+        if (hi == null) throw new IllegalArgumentException("second argument to size() is null");
+
+        if (lo.compareTo(hi) > 0) return 0;
+        if (contains(hi)) return rank(hi) - rank(lo) + 1;
+        else              return rank(hi) - rank(lo);
+    }
+
+    // in-order walk with an explicit stack, from the path to lo up to the
+    // first key above hi; lo and hi null mean no bound
+    private class Keys implements Iterator<Key> {
+        private final int[] stack = new int[MAX_HEIGHT];
+        private final Key hi;
+        private int top;
+
+        Keys(Key lo, Key hi) {
+            this.hi = hi;
+            int x = root;
+            while (x != NIL) {
+                int cmplo = lo == null ? -1 : lo.compareTo(keys[x]);
+                if (cmplo > 0) {
+                    x = right(x);
+                } else {
+                    stack[top++] = x;
+                    x = cmplo < 0 ? left(x) : NIL;
+                }
+            }
+        }
+
+        public boolean hasNext() {
+            return top > 0 && (hi == null || hi.compareTo(keys[stack[top - 1]]) >= 0);
+        }
+
+        public Key next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            int x = stack[--top];
+            for (int y = right(x); y != NIL; y = left(y))
+                stack[top++] = y;
+            return keys[x];
+        }
+    }
+
+    private boolean check() {
+        return isBST() && isSizeConsistent() && isRankConsistent() && is23() && isBalanced();
+    }
+
+    // the validators below walk trees that may be broken, so unlike the
+    // operations above their stacks grow past MAX_HEIGHT when they must
+
+    // does this binary tree satisfy symmetric order?
+    // in-order walk with an explicit stack: symmetric order holds exactly
+    // when every key is strictly greater than the one visited before it
+    private boolean isBST() {
+        int[] stack = new int[MAX_HEIGHT];
+        int top = 0;
+        Key prev = null;
+        int x = root;
+        while (x != NIL || top > 0) {
+            while (x != NIL) {
+                if (top == stack.length) stack = Arrays.copyOf(stack, 2 * top);
+                stack[top++] = x;
+                x = left(x);
+            }
+            x = stack[--top];
+            if (prev != null && keys[x].compareTo(prev) <= 0) return false;
+            prev = keys[x];
+            x = right(x);
+        }
+        return true;
+    }
+
+    // are the size fields correct?
+    private boolean isSizeConsistent() {
+        if (root == NIL) return true;
+        int[] stack = new int[MAX_HEIGHT + 1];
+        int top = 0;
+        stack[top++] = root;
+        while (top > 0) {
+            int x = stack[--top];
+            if (size(x) != size(left(x)) + size(right(x)) + 1) return false;
+            if (top + 2 > stack.length) stack = Arrays.copyOf(stack, 2 * stack.length);
+            if (right(x) != NIL) stack[top++] = right(x);
+            if (left(x) != NIL)  stack[top++] = left(x);
+        }
+        return true;
+    }
+
+    // check that ranks are consistent
+    private boolean isRankConsistent() {
+        for (int i = 0; i < size(); i++)
+            if (i != rank(select(i))) return false;
+        for (Key key : keys())
+            if (key.compareTo(select(rank(key))) != 0) return false;
+        return true;
+    }
+
+    // Does the tree have no red right links, and at most one (left)
+    // red links in a row on any path?
+    private boolean is23() {
+        if (root == NIL) return true;
+        int[] stack = new int[MAX_HEIGHT + 1];
+        int top = 0;
+        stack[top++] = root;
+        while (top > 0) {
+            int x = stack[--top];
+            if (isRed(right(x))) return false;
+            if (x != root && isRed(x) && isRed(left(x)))
+                return false;
+            if (top + 2 > stack.length) stack = Arrays.copyOf(stack, 2 * stack.length);
+            if (right(x) != NIL) stack[top++] = right(x);
+            if (left(x) != NIL)  stack[top++] = left(x);
+        }
+        return true;
+    }
+
+    // do all paths from root to leaf have same number of black edges?
+    // each stacked node (null links included) carries the count still owed below it
+    private boolean isBalanced() {
+        int black = 0;     // number of black links on path from root to min
+        for (int x = root; x != NIL; x = left(x))
+            if (!isRed(x)) black++;
+        int[] stack = new int[MAX_HEIGHT + 2];
+        int[] owed = new int[MAX_HEIGHT + 2];
+        int top = 0;
+        stack[top] = root;
+        owed[top++] = black;
+        while (top > 0) {
+            int x = stack[--top];
+            black = owed[top];
+            if (x == NIL) {
+                if (black != 0) return false;
+                continue;
+            }
+            if (!isRed(x)) black--;
+            if (top + 2 > stack.length) {
+                stack = Arrays.copyOf(stack, 2 * stack.length);
+                owed = Arrays.copyOf(owed, 2 * owed.length);
+            }
+            stack[top] = right(x);
+            owed[top++] = black;
+            stack[top] = left(x);
+            owed[top++] = black;
+        }
+        return true;
+    }
+}
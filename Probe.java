@@ -0,0 +1,138 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+//Low-overhead timing of the alignment phases. Off unless the JVM runs with
+//-Dsw.metrics=true: ENABLED is a static final, so call sites written as
+//    Probe.Fill pf = Probe.ENABLED ? Probe.fill("sw") : null;
+//    ...
+//    if(pf != null) pf.done(cells);
+//fold away and the fill loops are untouched. When on, one probe per phase
+//(not per cell) reads nanoTime and the thread's allocated bytes at both
+//ends, reports to sink and commits a JFR event (category Smith-Waterman)
+//if a recording has it enabled.
+class Probe {
+    static final boolean ENABLED = Boolean.getBoolean("sw.metrics");
+    static volatile Metrics sink = new Metrics.Totals();
+
+    private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+    private static com.sun.management.ThreadMXBean threads(){
+        ThreadMXBean t = ManagementFactory.getThreadMXBean();
+        if(t instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean)t).isThreadAllocatedMemorySupported())
+            return (com.sun.management.ThreadMXBean)t;
+        return null;
+    }
+
+    //bytes allocated so far by the calling thread, -1 if unknown
+    static long allocated(){
+        return THREADS == null ? -1 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    private static long since(long a0){
+        return a0 < 0 ? -1 : allocated() - a0;
+    }
+
+    public static Fill fill(String engine){
+        Fill p = new Fill();
+        p.engine = engine;
+        p.begin();
+        p.t0 = System.nanoTime();
+        p.a0 = allocated();
+        return p;
+    }
+
+    public static Traceback traceback(String engine){
+        Traceback p = new Traceback();
+        p.engine = engine;
+        p.begin();
+        p.t0 = System.nanoTime();
+        p.a0 = allocated();
+        return p;
+    }
+
+    public static Io io(String what){
+        Io p = new Io();
+        p.what = what;
+        p.begin();
+        p.t0 = System.nanoTime();
+        return p;
+    }
+
+    @Name("sw.Fill")
+    @Label("Alignment Fill")
+    @Category("Smith-Waterman")
+    static final class Fill extends Event {
+        @Label("Engine")
+        String engine;
+        @Label("Cells")
+        long cells;
+        @Label("GCUPS")
+        double gcups;
+        @Label("Allocated")
+        @DataAmount
+        long allocated;
+        transient long t0, a0;
+
+        void done(long cells){
+            long nanos = System.nanoTime() - t0;
+            end();
+            this.cells = cells;
+            this.gcups = nanos == 0 ? 0 : (double)cells/nanos;
+            this.allocated = since(a0);
+            sink.fill(engine, cells, nanos, allocated);
+            if(shouldCommit())
+                commit();
+        }
+    }
+
+    @Name("sw.Traceback")
+    @Label("Alignment Traceback")
+    @Category("Smith-Waterman")
+    static final class Traceback extends Event {
+        @Label("Engine")
+        String engine;
+        @Label("Columns")
+        long columns;
+        @Label("Allocated")
+        @DataAmount
+        long allocated;
+        transient long t0, a0;
+
+        void done(long columns){
+            long nanos = System.nanoTime() - t0;
+            end();
+            this.columns = columns;
+            this.allocated = since(a0);
+            sink.traceback(engine, columns, nanos, allocated);
+            if(shouldCommit())
+                commit();
+        }
+    }
+
+    @Name("sw.Io")
+    @Label("Alignment I/O")
+    @Category("Smith-Waterman")
+    static final class Io extends Event {
+        @Label("What")
+        String what;
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+        transient long t0;
+
+        void done(long bytes){
+            long nanos = System.nanoTime() - t0;
+            end();
+            this.bytes = bytes;
+            sink.io(what, bytes, nanos);
+            if(shouldCommit())
+                commit();
+        }
+    }
+}
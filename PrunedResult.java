@@ -0,0 +1,12 @@
+//Score from an engine that may stop early (XDropSW). (i, j) is the best
+//cell, in matrix coordinates like ScoreResult. cells is how many DP cells
+//were filled, skipped how many of the full matrix never were. abandoned
+//means a min-score cutoff proved the threshold unreachable and gave up, so
+//score is only the best seen before that, not the true best
+record PrunedResult(int score, int i, int j, long cells, long skipped, boolean abandoned) {
+    @Override
+    public String toString() {
+        return this.score + " (" + this.i + ", " + this.j + ")" + (this.abandoned ? " abandoned" : "")
+            + ", " + this.cells + " cells, " + this.skipped + " skipped";
+    }
+}
@@ -0,0 +1,62 @@
+//Flat replacement for Result[][]: one int score and one byte arrow per cell,
+//stored row-major in two primitive arrays (index = i*cols + j)
+class ScoreMatrix {
+    //arrow codes, 2 bits worth; NONE is the border (Result's "" arrow)
+    static final byte NONE = 0;
+    static final byte UL = 1;
+    static final byte U = 2;
+    static final byte L = 3;
+    //affine fills only: the U/L gap at this cell extends one rather than opening
+    static final byte E_EXT = 4;
+    static final byte F_EXT = 8;
+
+    final int rows;
+    final int cols;
+    final int[] score;
+    final byte[] dir;
+
+    public ScoreMatrix(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+        this.score = new int[rows*cols];
+        this.dir = new byte[rows*cols];
+    }
+
+    public int getRows(){
+        return this.rows;
+    }
+    public int getCols(){
+        return this.cols;
+    }
+    public int getCellValue(int i, int j){
+        return this.score[i*cols + j];
+    }
+    public byte getDir(int i, int j){
+        return (byte)(this.dir[i*cols + j] & 3);
+    }
+    //same strings Result.getArrow() hands out, for printing/debugging only
+    public String getArrow(int i, int j){
+        switch(getDir(i, j)){
+            case UL: return "UL";
+            case U: return "U";
+            case L: return "L";
+            default: return "";
+        }
+    }
+    //max of row i without boxing it into a list first
+    public int rowMax(int i){
+        int base = i*cols, max = score[base];
+        for(int j=1; j<cols; j++)
+            if(score[base+j] > max)
+                max = score[base+j];
+        return max;
+    }
+    //first column of row i holding v, -1 if none (List.indexOf semantics)
+    public int indexOf(int i, int v){
+        int base = i*cols;
+        for(int j=0; j<cols; j++)
+            if(score[base+j] == v)
+                return j;
+        return -1;
+    }
+}
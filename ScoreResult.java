@@ -0,0 +1,8 @@
+//Best local score and the cell (i, j) it ends on; i indexes X, j indexes Y,
+//both 1-based like the matrix rows/cols. (0, 0) with score 0 means no hit
+record ScoreResult(int score, int i, int j) {
+    @Override
+    public String toString() {
+        return this.score + " (" + this.i + ", " + this.j + ")";
+    }
+}
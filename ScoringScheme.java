@@ -0,0 +1,195 @@
+//Substitution matrix plus affine gap costs.
+//Residues are mapped to small codes (index into alphabet, case folded);
+//anything not in the alphabet gets the wildcard code. A gap of length L
+//costs gapOpen + (L-1)*gapExtend, both given as positive numbers, so
+//gapOpen == gapExtend is the linear model sw has always used.
+//Engines take a per-query profile, profile[code][j] = score of residue
+//code against query[j], and index it by the target residue's code.
+class ScoringScheme {
+    static final String LETTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ*";
+    static final String PROTEIN = "ARNDCQEGHILKMFPSTWYVBZX*";
+
+    //match 5, mismatch -4, gap -4: the constants sw has always used. Unlike
+    //sw's raw char compare, residues are case folded ('a' matches 'A') and
+    //every non-letter shares the wildcard code, so '-' matches '1'
+    static final ScoringScheme LINEAR = identity(5, -4, 4, 4);
+    //NCBI defaults for BLOSUM62 (11 to open plus 1 per residue)
+    static final ScoringScheme BLOSUM62 = blosum62(12, 1);
+    //10 to open plus 2 per residue
+    static final ScoringScheme PAM250 = pam250(12, 2);
+
+    final String name;
+    final String alphabet;
+    final int[][] matrix;//[code][code], size() x size()
+    final byte[] codes = new byte[128];//ASCII -> code
+    final int wildcard;
+    final int gapOpen, gapExtend;
+    final int maxScore, minScore;
+
+    public ScoringScheme(String name, String alphabet, int[][] matrix, int wildcard, int gapOpen, int gapExtend) {
+        if(gapOpen < 0 || gapExtend < 0)
+            throw new IllegalArgumentException("gap costs are positive numbers: " + gapOpen + ", " + gapExtend);
+        if(matrix.length != alphabet.length() && matrix.length != alphabet.length()+1)
+            throw new IllegalArgumentException("matrix does not match alphabet " + alphabet);
+        for(int[] row : matrix)
+            if(row.length != matrix.length)
+                throw new IllegalArgumentException("matrix is not square: a row has " + row.length + " columns, not " + matrix.length);
+        if(wildcard < 0 || wildcard >= matrix.length || wildcard > Byte.MAX_VALUE)
+            throw new IllegalArgumentException("wildcard code must be in 0.." + Math.min(matrix.length-1, Byte.MAX_VALUE) + ": " + wildcard);
+        for(int c=0; c<alphabet.length(); c++)
+            if(alphabet.charAt(c) >= 128)
+                throw new IllegalArgumentException("alphabet is ASCII only: " + alphabet);
+        this.name = name;
+        this.alphabet = alphabet;
+        this.matrix = matrix;
+        this.wildcard = wildcard;
+        this.gapOpen = gapOpen;
+        this.gapExtend = gapExtend;
+        java.util.Arrays.fill(codes, (byte)wildcard);
+        for(int c=0; c<alphabet.length(); c++){
+            char r = alphabet.charAt(c);
+            codes[r] = (byte)c;
+            codes[Character.toLowerCase(r)] = (byte)c;
+        }
+        int max = Integer.MIN_VALUE, min = Integer.MAX_VALUE;
+        for(int[] row : matrix)
+            for(int v : row){
+                max = Math.max(max, v);
+                min = Math.min(min, v);
+            }
+        this.maxScore = max;
+        this.minScore = min;
+    }
+
+    //match/mismatch over the letters; anything else is the wildcard, which
+    //matches itself and mismatches every letter
+    public static ScoringScheme identity(int match, int mismatch, int gapOpen, int gapExtend){
+        int size = LETTERS.length()+1;
+        int[][] m = new int[size][size];
+        for(int a=0; a<size; a++)
+            for(int b=0; b<size; b++)
+                m[a][b] = a == b ? match : mismatch;
+        String name = gapOpen == gapExtend ? "linear" : "affine";
+        return new ScoringScheme(name + "(" + match + "," + mismatch + "," + gapOpen + "," + gapExtend + ")",
+                                 LETTERS, m, LETTERS.length(), gapOpen, gapExtend);
+    }
+
+    public static ScoringScheme blosum62(int gapOpen, int gapExtend){
+        return new ScoringScheme("blosum62", PROTEIN, parse(BLOSUM62_TABLE), PROTEIN.indexOf('X'), gapOpen, gapExtend);
+    }
+
+    public static ScoringScheme pam250(int gapOpen, int gapExtend){
+        return new ScoringScheme("pam250", PROTEIN, parse(PAM250_TABLE), PROTEIN.indexOf('X'), gapOpen, gapExtend);
+    }
+
+    //by name, for command lines: linear, blosum62, pam250
+    public static ScoringScheme named(String name){
+        switch(name.toLowerCase()){
+            case "linear": return LINEAR;
+            case "blosum62": return BLOSUM62;
+            case "pam250": return PAM250;
+            default: throw new IllegalArgumentException("unknown scoring scheme " + name);
+        }
+    }
+
+    public int size(){
+        return this.matrix.length;
+    }
+    public int code(char c){
+        return c < 128 ? codes[c] : wildcard;
+    }
+    public int score(char a, char b){
+        return matrix[code(a)][code(b)];
+    }
+    public boolean isLinear(){
+        return this.gapOpen == this.gapExtend;
+    }
+
+    //profile[code][j] = matrix[code][query[j]]
+    public int[][] profile(CharSequence query){
+        int n = query.length();
+        int[] q = new int[n];
+        for(int j=0; j<n; j++)
+            q[j] = code(query.charAt(j));
+        int[][] prof = new int[size()][n];
+        for(int c=0; c<size(); c++){
+            int[] row = matrix[c], p = prof[c];
+            for(int j=0; j<n; j++)
+                p[j] = row[q[j]];
+        }
+        return prof;
+    }
+
+    @Override
+    public String toString() {
+        return this.name + " gap " + this.gapOpen + "/" + this.gapExtend;
+    }
+
+    private static int[][] parse(String table){
+        String[] lines = table.strip().split("\n");
+        int[][] m = new int[lines.length-1][];
+        for(int r=1; r<lines.length; r++){
+            String[] f = lines[r].trim().split("\\s+");
+            m[r-1] = new int[f.length-1];
+            for(int c=1; c<f.length; c++)
+                m[r-1][c-1] = Integer.parseInt(f[c]);
+        }
+        return m;
+    }
+
+    static final String BLOSUM62_TABLE = """
+           A  R  N  D  C  Q  E  G  H  I  L  K  M  F  P  S  T  W  Y  V  B  Z  X  *
+        A  4 -1 -2 -2  0 -1 -1  0 -2 -1 -1 -1 -1 -2 -1  1  0 -3 -2  0 -2 -1  0 -4
+        R -1  5  0 -2 -3  1  0 -2  0 -3 -2  2 -1 -3 -2 -1 -1 -3 -2 -3 -1  0 -1 -4
+        N -2  0  6  1 -3  0  0  0  1 -3 -3  0 -2 -3 -2  1  0 -4 -2 -3  3  0 -1 -4
+        D -2 -2  1  6 -3  0  2 -1 -1 -3 -4 -1 -3 -3 -1  0 -1 -4 -3 -3  4  1 -1 -4
+        C  0 -3 -3 -3  9 -3 -4 -3 -3 -1 -1 -3 -1 -2 -3 -1 -1 -2 -2 -1 -3 -3 -2 -4
+        Q -1  1  0  0 -3  5  2 -2  0 -3 -2  1  0 -3 -1  0 -1 -2 -1 -2  0  3 -1 -4
+        E -1  0  0  2 -4  2  5 -2  0 -3 -3  1 -2 -3 -1  0 -1 -3 -2 -2  1  4 -1 -4
+        G  0 -2  0 -1 -3 -2 -2  6 -2 -4 -4 -2 -3 -3 -2  0 -2 -2 -3 -3 -1 -2 -1 -4
+        H -2  0  1 -1 -3  0  0 -2  8 -3 -3 -1 -2 -1 -2 -1 -2 -2  2 -3  0  0 -1 -4
+        I -1 -3 -3 -3 -1 -3 -3 -4 -3  4  2 -3  1  0 -3 -2 -1 -3 -1  3 -3 -3 -1 -4
+        L -1 -2 -3 -4 -1 -2 -3 -4 -3  2  4 -2  2  0 -3 -2 -1 -2 -1  1 -4 -3 -1 -4
+        K -1  2  0 -1 -3  1  1 -2 -1 -3 -2  5 -1 -3 -1  0 -1 -3 -2 -2  0  1 -1 -4
+        M -1 -1 -2 -3 -1  0 -2 -3 -2  1  2 -1  5  0 -2 -1 -1 -1 -1  1 -3 -1 -1 -4
+        F -2 -3 -3 -3 -2 -3 -3 -3 -1  0  0 -3  0  6 -4 -2 -2  1  3 -1 -3 -3 -1 -4
+        P -1 -2 -2 -1 -3 -1 -1 -2 -2 -3 -3 -1 -2 -4  7 -1 -1 -4 -3 -2 -2 -1 -2 -4
+        S  1 -1  1  0 -1  0  0  0 -1 -2 -2  0 -1 -2 -1  4  1 -3 -2 -2  0  0  0 -4
+        T  0 -1  0 -1 -1 -1 -1 -2 -2 -1 -1 -1 -1 -2 -1  1  5 -2 -2  0 -1 -1  0 -4
+        W -3 -3 -4 -4 -2 -2 -3 -2 -2 -3 -2 -3 -1  1 -4 -3 -2 11  2 -3 -4 -3 -2 -4
+        Y -2 -2 -2 -3 -2 -1 -2 -3  2 -1 -1 -2 -1  3 -3 -2 -2  2  7 -1 -3 -2 -1 -4
+        V  0 -3 -3 -3 -1 -2 -2 -3 -3  3  1 -2  1 -1 -2 -2  0 -3 -1  4 -3 -2 -1 -4
+        B -2 -1  3  4 -3  0  1 -1  0 -3 -4  0 -3 -3 -2  0 -1 -4 -3 -3  4  1 -1 -4
+        Z -1  0  0  1 -3  3  4 -2  0 -3 -3  1 -1 -3 -1  0 -1 -3 -2 -2  1  4 -1 -4
+        X  0 -1 -1 -1 -2 -1 -1 -1 -1 -1 -1 -1 -1 -1 -2  0  0 -2 -1 -1 -1 -1 -1 -4
+        * -4 -4 -4 -4 -4 -4 -4 -4 -4 -4 -4 -4 -4 -4 -4 -4 -4 -4 -4 -4 -4 -4 -4  1
+        """;
+
+    static final String PAM250_TABLE = """
+           A  R  N  D  C  Q  E  G  H  I  L  K  M  F  P  S  T  W  Y  V  B  Z  X  *
+        A  2 -2  0  0 -2  0  0  1 -1 -1 -2 -1 -1 -3  1  1  1 -6 -3  0  0  0  0 -8
+        R -2  6  0 -1 -4  1 -1 -3  2 -2 -3  3  0 -4  0  0 -1  2 -4 -2 -1  0 -1 -8
+        N  0  0  2  2 -4  1  1  0  2 -2 -3  1 -2 -3  0  1  0 -4 -2 -2  2  1  0 -8
+        D  0 -1  2  4 -5  2  3  1  1 -2 -4  0 -3 -6 -1  0  0 -7 -4 -2  3  3 -1 -8
+        C -2 -4 -4 -5 12 -5 -5 -3 -3 -2 -6 -5 -5 -4 -3  0 -2 -8  0 -2 -4 -5 -3 -8
+        Q  0  1  1  2 -5  4  2 -1  3 -2 -2  1 -1 -5  0 -1 -1 -5 -4 -2  1  3 -1 -8
+        E  0 -1  1  3 -5  2  4  0  1 -2 -3  0 -2 -5 -1  0  0 -7 -4 -2  3  3 -1 -8
+        G  1 -3  0  1 -3 -1  0  5 -2 -3 -4 -2 -3 -5  0  1  0 -7 -5 -1  0  0 -1 -8
+        H -1  2  2  1 -3  3  1 -2  6 -2 -2  0 -2 -2  0 -1 -1 -3  0 -2  1  2 -1 -8
+        I -1 -2 -2 -2 -2 -2 -2 -3 -2  5  2 -2  2  1 -2 -1  0 -5 -1  4 -2 -2 -1 -8
+        L -2 -3 -3 -4 -6 -2 -3 -4 -2  2  6 -3  4  2 -3 -3 -2 -2 -1  2 -3 -3 -1 -8
+        K -1  3  1  0 -5  1  0 -2  0 -2 -3  5  0 -5 -1  0  0 -3 -4 -2  1  0 -1 -8
+        M -1  0 -2 -3 -5 -1 -2 -3 -2  2  4  0  6  0 -2 -2 -1 -4 -2  2 -2 -2 -1 -8
+        F -3 -4 -3 -6 -4 -5 -5 -5 -2  1  2 -5  0  9 -5 -3 -3  0  7 -1 -4 -5 -2 -8
+        P  1  0  0 -1 -3  0 -1  0  0 -2 -3 -1 -2 -5  6  1  0 -6 -5 -1 -1  0 -1 -8
+        S  1  0  1  0  0 -1  0  1 -1 -1 -3  0 -2 -3  1  2  1 -2 -3 -1  0  0  0 -8
+        T  1 -1  0  0 -2 -1  0  0 -1  0 -2  0 -1 -3  0  1  3 -5 -3  0  0 -1  0 -8
+        W -6  2 -4 -7 -8 -5 -7 -7 -3 -5 -2 -3 -4  0 -6 -2 -5 17  0 -6 -5 -6 -4 -8
+        Y -3 -4 -2 -4  0 -4 -4 -5  0 -1 -1 -4 -2  7 -5 -3 -3  0 10 -2 -3 -4 -2 -8
+        V  0 -2 -2 -2 -2 -2 -2 -1 -2  4  2 -2  2 -1 -1 -1  0 -6 -2  4 -2 -2 -1 -8
+        B  0 -1  2  3 -4  1  3  0  1 -2 -3  1 -2 -4 -1  0  0 -5 -3 -2  3  2 -1 -8
+        Z  0  0  1  3 -5  3  3  0  2 -2 -3  0 -2 -5  0  0 -1 -6 -4 -2  2  3 -1 -8
+        X  0 -1  0 -1 -3 -1 -1 -1 -1 -1 -1 -1 -1 -2 -1  0  0 -4 -2 -1 -1 -1 -1 -8
+        * -8 -8 -8 -8 -8 -8 -8 -8 -8 -8 -8 -8 -8 -8 -8 -8 -8 -8 -8 -8 -8 -8 -8  1
+        """;
+}
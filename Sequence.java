@@ -0,0 +1,93 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+//Residues as one ASCII byte each over a shared byte[]; a slice is just a
+//new offset/length on the same array, nothing is copied. Implements
+//CharSequence so every aligner entry point takes it next to String.
+class Sequence implements CharSequence {
+    static final String DNA = "ACGT";
+    static final String IUPAC_DNA = "ACGTNRYKMSWBDHV";
+    static final String PROTEIN = ScoringScheme.PROTEIN;
+
+    final byte[] data;
+    final int offset;
+    final int length;
+
+    public Sequence(byte[] data, int offset, int length) {
+        if(offset < 0 || length < 0 || offset + length > data.length)
+            throw new IndexOutOfBoundsException("slice " + offset + "+" + length + " of " + data.length);
+        this.data = data;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    public static Sequence of(CharSequence s){
+        if(s instanceof Sequence)
+            return (Sequence)s;
+        byte[] b = new byte[s.length()];
+        for(int i=0; i<b.length; i++){
+            char c = s.charAt(i);
+            if(c > 0x7f)
+                throw new IllegalArgumentException("not a residue: '" + c + "' at " + i);
+            b[i] = (byte)c;
+        }
+        return new Sequence(b, 0, b.length);
+    }
+
+    //upper-cased copy of s; every residue must be in alphabet
+    public static Sequence of(CharSequence s, String alphabet){
+        byte[] b = new byte[s.length()];
+        for(int i=0; i<b.length; i++){
+            char c = Character.toUpperCase(s.charAt(i));
+            if(alphabet.indexOf(c) < 0)
+                throw new IllegalArgumentException("'" + s.charAt(i) + "' at " + i + " is not in " + alphabet);
+            b[i] = (byte)c;
+        }
+        return new Sequence(b, 0, b.length);
+    }
+
+    //index of the first residue not in alphabet, -1 if all are
+    public int validate(String alphabet){
+        for(int i=0; i<length; i++)
+            if(alphabet.indexOf(data[offset+i]) < 0)
+                return i;
+        return -1;
+    }
+
+    public byte byteAt(int i){
+        return data[offset+i];
+    }
+
+    @Override
+    public int length(){
+        return this.length;
+    }
+
+    @Override
+    public char charAt(int i){
+        if(i < 0 || i >= length)
+            throw new IndexOutOfBoundsException(i);
+        return (char)data[offset+i];
+    }
+
+    public Sequence slice(int from, int to){
+        if(from < 0 || to > length || from > to)
+            throw new IndexOutOfBoundsException("slice " + from + ".." + to + " of " + length);
+        return new Sequence(data, offset+from, to-from);
+    }
+
+    @Override
+    public Sequence subSequence(int from, int to){
+        return slice(from, to);
+    }
+
+    //detached copy owning exactly its residues, for views over reused buffers
+    public Sequence copy(){
+        return new Sequence(Arrays.copyOfRange(data, offset, offset+length), 0, length);
+    }
+
+    @Override
+    public String toString(){
+        return new String(data, offset, length, StandardCharsets.US_ASCII);
+    }
+}
@@ -1,3 +1,5 @@
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -10,6 +12,8 @@ import java.util.Stack;
 //Mismatch = -4
 
 class SmithWaterman {
+    static final int NEG = Integer.MIN_VALUE/4;//minus infinity that survives a few subtractions
+
     public static void printAdjMat(Result[][] adjMat){
         for(int i=0; i<adjMat.length; i++){
             for(int j=0; j<adjMat[0].length; j++){
@@ -23,9 +27,19 @@ class SmithWaterman {
         System.out.println();
     }
 
+    public static void printAdjMat(ScoreMatrix adjMat){
+        for(int i=0; i<adjMat.rows; i++){
+            for(int j=0; j<adjMat.cols; j++)
+                System.out.printf("%3d", adjMat.getCellValue(i, j));
+            System.out.println();
+        }
+        System.out.println();
+    }
+
     //the character arrow representation is used to do traceback on the scoring matrix
     //for the maximum path, always asking the UpLeft diag element which direction to go
-    public static void printSeqsArrows(Result[][] scoreMatrix, String p, String q){
+    public static void printSeqsArrows(Result[][] scoreMatrix, CharSequence p, CharSequence q){
+        Probe.Traceback pt = Probe.ENABLED ? Probe.traceback("printSeqsArrows") : null;
         Stack<String> subSeq1 = new Stack<String>(), subSeq2 = new Stack<String>();
         String[] shortList1 = new String[3], shortList2 = new String[3], shortList3 = new String[3];
         ArrayList<String[]> compVals = new ArrayList<>();
@@ -112,22 +126,107 @@ class SmithWaterman {
             i = ii; j = jj;
             compVals.clear();
         }
+        if(pt != null) pt.done(Math.max(subSeq1.size(), subSeq2.size()));
+        Probe.Io pi = Probe.ENABLED ? Probe.io("print") : null;
+        long printed = 0;
 
         System.out.print("seq1: ");
-        while(!subSeq1.empty())
-            System.out.print(subSeq1.pop() + " ");
+        printed += "seq1: ".length();
+        while(!subSeq1.empty()){
+            String c = subSeq1.pop();
+            System.out.print(c + " ");
+            printed += c.length()+1;
+        }
         System.out.println();
+        printed++;
 
         System.out.print("seq2: ");
-        while(!subSeq2.empty())
-            System.out.print(subSeq2.pop() + " ");
+        printed += "seq2: ".length();
+        while(!subSeq2.empty()){
+            String c = subSeq2.pop();
+            System.out.print(c + " ");
+            printed += c.length()+1;
+        }
         System.out.println();
+        printed++;
+        if(pi != null) pi.done(printed);
+    }
+
+    //walks back from the best cell (first max in row-major order) along the
+    //arrows, and along E_EXT/F_EXT through affine gaps, until a zero cell.
+    //The result is coordinates plus run-length ops, no per-residue objects;
+    //AlignmentRenderer turns it into text when someone wants to read it
+    public static Alignment traceback(ScoreMatrix m, CharSequence X, CharSequence Y){
+        int[] score = m.score;
+        int cols = m.cols, best = 0, at = 0;
+        for(int k=0; k<score.length; k++)
+            if(score[k] > best){
+                best = score[k]; at = k;
+            }
+        if(best == 0)
+            return new Alignment(0, 0, 0, 0, 0, new int[0], 0);
+        return traceback(m, X, Y, at/cols, at%cols);
+    }
+
+    //the same walk from any cell (ie, je)
+    public static Alignment traceback(ScoreMatrix m, CharSequence X, CharSequence Y, int ie, int je){
+        int[] score = m.score;
+        byte[] dir = m.dir;
+        int cols = m.cols;
+        return traceback((i, j) -> score[i*cols+j] > 0 ? dir[i*cols+j] : ScoreMatrix.NONE,
+                         score[ie*cols+je], X, Y, ie, je);
+    }
+
+    //the walk itself, over any arrow store; best is the score at (ie, je)
+    public static Alignment traceback(Directions d, int best, CharSequence X, CharSequence Y, int ie, int je){
+        Probe.Traceback pt = Probe.ENABLED ? Probe.traceback("traceback") : null;
+        int i = ie, j = je, matches = 0;
+        int state = ScoreMatrix.UL;//UL: on H; U, L: inside a vertical/horizontal gap
+        Alignment.Ops ops = new Alignment.Ops();
+        while(true){
+            int a = d.get(i, j);
+            if(state == ScoreMatrix.UL && (state = a & 3) == ScoreMatrix.NONE)
+                break;
+            if(state == ScoreMatrix.UL){
+                boolean same = X.charAt(i-1) == Y.charAt(j-1);
+                ops.add(same ? Alignment.MATCH : Alignment.MISMATCH);
+                if(same)
+                    matches++;
+                i--; j--;
+            }
+            else if(state == ScoreMatrix.U){
+                ops.add(Alignment.DEL);
+                i--;
+                if((a & ScoreMatrix.E_EXT) == 0)
+                    state = ScoreMatrix.UL;
+            }
+            else {
+                ops.add(Alignment.INS);
+                j--;
+                if((a & ScoreMatrix.F_EXT) == 0)
+                    state = ScoreMatrix.UL;
+            }
+        }
+        Alignment a = new Alignment(best, i, ie, j, je, ops.toArray(true), matches);
+        if(pt != null) pt.done(a.length());
+        return a;
+    }
+
+    //the ScoreMatrix version prints the traceback() alignment instead of
+    //walking the matrix with its own stacks
+    public static void printSeqsArrows(ScoreMatrix scoreMatrix, CharSequence p, CharSequence q){
+        Alignment a = traceback(scoreMatrix, p, q);
+        Probe.Io pi = Probe.ENABLED ? Probe.io("print") : null;
+        String text = AlignmentRenderer.pair(a, p, q);
+        System.out.println(text);
+        if(pi != null) pi.done(text.length()+1);
     }
 
 
-    public static Result[][] sw(String X, String Y){
+    public static Result[][] sw(CharSequence X, CharSequence Y){
         int m = X.length();
         int n = Y.length();
+        Probe.Fill pf = Probe.ENABLED ? Probe.fill("sw") : null;
         Result[][] res = new Result[m+1][n+1];
 
         for(int i = 0; i<res.length; i++)
@@ -183,10 +282,223 @@ class SmithWaterman {
             }
         }
 
+        if(pf != null) pf.done((long)m*n);
+        return res;
+    }
+
+    //same recurrence and arrows as sw, but into a flat int/byte ScoreMatrix:
+    //no Result per cell and no boxing through lst/Collections.max, ties still
+    //resolve UL, then U, then L exactly like the max == checks above
+    public static ScoreMatrix swMatrix(CharSequence X, CharSequence Y){
+        return swMatrix(X, Y, ScoringScheme.LINEAR);
+    }
+
+    //Gotoh fill with affine gaps: E is the gap coming down a column (U),
+    //F the gap running along a row (L). The arrow says where H came from;
+    //E_EXT/F_EXT mark cells whose E/F extended a gap rather than opened one.
+    //With a linear scheme E and F are just H above/left minus the gap, so
+    //scores and arrows are the ones swMatrix always produced.
+    public static ScoreMatrix swMatrix(CharSequence X, CharSequence Y, ScoringScheme s){
+        int m = X.length();
+        int n = Y.length();
+        Probe.Fill pf = Probe.ENABLED ? Probe.fill("swMatrix") : null;
+        ScoreMatrix res = new ScoreMatrix(m+1, n+1);
+        int[] score = res.score;
+        byte[] dir = res.dir;
+        int cols = n+1;
+        int[][] prof = s.profile(Y);
+        int open = s.gapOpen, ext = s.gapExtend;
+        int[] e = new int[n+1];
+        java.util.Arrays.fill(e, NEG);
+
+        for(int i=1; i<m+1; i++){
+            int[] p = prof[s.code(X.charAt(i-1))];
+            int up = (i-1)*cols, cur = i*cols;
+            int f = NEG;
+            for(int j=1; j<n+1; j++){
+                int prevDiag = score[up+j-1] + p[j-1];
+                int eOpen = score[up+j] - open, eExt = e[j] - ext;
+                int fOpen = score[cur+j-1] - open, fExt = f - ext;
+                int prevRow = Math.max(eOpen, eExt);
+                int prevCol = Math.max(fOpen, fExt);
+                e[j] = prevRow;
+                f = prevCol;
+
+                int max;
+                byte arrow;
+                if(prevDiag >= prevRow && prevDiag >= prevCol){
+                    max = prevDiag; arrow = ScoreMatrix.UL;
+                }
+                else if(prevRow >= prevCol){
+                    max = prevRow; arrow = ScoreMatrix.U;
+                }
+                else {
+                    max = prevCol; arrow = ScoreMatrix.L;
+                }
+                if(eExt > eOpen) arrow |= ScoreMatrix.E_EXT;
+                if(fExt > fOpen) arrow |= ScoreMatrix.F_EXT;
+
+                score[cur+j] = max < 0 ? 0 : max;
+                dir[cur+j] = arrow;
+            }
+        }
+
+        if(pf != null) pf.done((long)m*n);
         return res;
     }
-      
-    public static void main(String[] args){
+
+    //score-only fill: same recurrence as swMatrix but with two rolling rows,
+    //so memory is O(n). The max is tracked during the fill, first one in
+    //row-major order wins (strictly greater replaces)
+    public static ScoreResult swScore(CharSequence X, CharSequence Y){
+        return swScore(X, Y, ScoringScheme.LINEAR);
+    }
+
+    //score-only Gotoh: one H row updated in place, one E row and a running F;
+    //the inner loop reads the query profile row of X[i-1], no char compares
+    public static ScoreResult swScore(CharSequence X, CharSequence Y, ScoringScheme s){
+        int m = X.length();
+        int n = Y.length();
+        int[][] prof = s.profile(Y);
+        int open = s.gapOpen, ext = s.gapExtend;
+        Probe.Fill pf = Probe.ENABLED ? Probe.fill("swScore") : null;
+        int[] h = new int[n+1], e = new int[n+1];
+        java.util.Arrays.fill(e, NEG);
+        int best = 0, bestI = 0, bestJ = 0;
+
+        for(int i=1; i<m+1; i++){
+            int[] p = prof[s.code(X.charAt(i-1))];
+            int diag = 0, left = 0, f = NEG;
+            for(int j=1; j<n+1; j++){
+                int up = h[j];
+                int ej = Math.max(up - open, e[j] - ext);
+                f = Math.max(left - open, f - ext);
+                int v = diag + p[j-1];
+                if(ej > v) v = ej;
+                if(f > v) v = f;
+                if(v < 0) v = 0;
+                e[j] = ej;
+                diag = up;
+                h[j] = v;
+                left = v;
+                if(v > best){
+                    best = v; bestI = i; bestJ = j;
+                }
+            }
+        }
+
+        if(pf != null) pf.done((long)m*n);
+        return new ScoreResult(best, bestI, bestJ);
+    }
+
+    //full traceback without a ScoreMatrix on the heap: swScore's two rows for
+    //the scores, each row's arrows packed into store (NONE where H is 0) and
+    //traceback() walked over the store. Same alignment as
+    //traceback(swMatrix(X, Y, s)); heap use is O(n) whatever m*n is
+    public static Alignment swAlign(CharSequence X, CharSequence Y, ScoringScheme s, DirectionStore store){
+        int m = X.length();
+        int n = Y.length();
+        if(store.rows < m+1 || store.cols != n+1)
+            throw new IllegalArgumentException("store is " + store.rows + "x" + store.cols + ", need " + (m+1) + "x" + (n+1));
+        Probe.Fill pf = Probe.ENABLED ? Probe.fill("swAlign") : null;
+        int[][] prof = s.profile(Y);
+        int open = s.gapOpen, ext = s.gapExtend;
+        int[] h = new int[n+1], e = new int[n+1];
+        byte[] row = new byte[n+1];
+        java.util.Arrays.fill(e, NEG);
+        int best = 0, bestI = 0, bestJ = 0;
+
+        for(int i=1; i<m+1; i++){
+            int[] p = prof[s.code(X.charAt(i-1))];
+            int diag = 0, left = 0, f = NEG;
+            for(int j=1; j<n+1; j++){
+                int up = h[j];
+                int eOpen = up - open, eExt = e[j] - ext;
+                int fOpen = left - open, fExt = f - ext;
+                int ej = Math.max(eOpen, eExt);
+                f = Math.max(fOpen, fExt);
+                int v = diag + p[j-1];
+                byte arrow = ScoreMatrix.UL;
+                if(ej > v){
+                    v = ej; arrow = ScoreMatrix.U;
+                }
+                if(f > v){
+                    v = f; arrow = ScoreMatrix.L;
+                }
+                if(eExt > eOpen) arrow |= ScoreMatrix.E_EXT;
+                if(fExt > fOpen) arrow |= ScoreMatrix.F_EXT;
+                if(v <= 0){
+                    v = 0; arrow = ScoreMatrix.NONE;
+                }
+                e[j] = ej;
+                diag = up;
+                h[j] = v;
+                left = v;
+                row[j] = arrow;
+                if(v > best){
+                    best = v; bestI = i; bestJ = j;
+                }
+            }
+            store.putRow(i, row);
+        }
+        if(pf != null) pf.done((long)m*n);
+
+        if(best == 0)
+            return new Alignment(0, 0, 0, 0, 0, new int[0], 0);
+        return traceback(store, best, X, Y, bestI, bestJ);
+    }
+
+    //where does the best alignment ending at (ie, je) start? Anchored Gotoh
+    //run backwards from (ie, je) over two rows; the first cell (nearest row,
+    //then nearest column) whose anchored score equals best is the start.
+    //Returns {is, js}, 0-based starts in X and Y.
+    public static int[] swStart(CharSequence X, CharSequence Y, ScoringScheme s, int ie, int je, int best){
+        if(best == 0)
+            return new int[]{ie, je};
+        int open = s.gapOpen, ext = s.gapExtend;
+        int[] h = new int[je+1], e = new int[je+1];
+        //row ie: only gaps in X are possible
+        h[je] = 0;
+        e[je] = NEG;
+        for(int b=je-1; b>=0; b--){
+            h[b] = -open - (je-1-b)*ext;
+            e[b] = NEG;
+        }
+        for(int a=ie-1; a>=0; a--){
+            int[] row = s.matrix[s.code(X.charAt(a))];
+            int diag = h[je], f = NEG;
+            h[je] = -open - (ie-1-a)*ext;
+            e[je] = h[je];
+            for(int b=je-1; b>=0; b--){
+                int down = h[b];
+                int eb = Math.max(down - open, e[b] - ext);
+                f = Math.max(h[b+1] - open, f - ext);
+                int v = diag + row[s.code(Y.charAt(b))];
+                if(eb > v) v = eb;
+                if(f > v) v = f;
+                e[b] = eb;
+                diag = down;
+                h[b] = v;
+            }
+            for(int b=je-1; b>=0; b--)
+                if(h[b] == best)
+                    return new int[]{a, b};
+        }
+        throw new IllegalArgumentException("no alignment of score " + best + " ends at (" + ie + ", " + je + ")");
+    }
+
+    //java SmithWaterman [a.fa b.fa]: first record of each file, else the built-in demo.
+    //With -Dsw.metrics=true the phase totals go to stderr at the end
+    public static void main(String[] args) throws IOException {
+        if(args.length == 2){
+            Probe.Io pi = Probe.ENABLED ? Probe.io("read") : null;
+            Sequence A = FastxReader.first(Paths.get(args[0])), B = FastxReader.first(Paths.get(args[1]));
+            if(pi != null) pi.done(A.length() + B.length());
+            System.out.println("best: " + swScore(A, B));
+            if(Probe.ENABLED)
+                System.err.println(Probe.sink);
+            return;
+        }
         //String X = "ACCGGTCGACTGCGCGGAAGCCGGCCGAA";
         //String Y = "GTCGTTCGGAATGCCGTTGCTCTGTAAA";
 
@@ -194,9 +506,15 @@ class SmithWaterman {
         String Q = "GCTGGAAGGCAT";//"EQLLKALEFKL";//
         //String Q = "EQLLKALEFKL";
         //String P = "KVLEFGY";
-        Result[][] r = sw(P, Q);//Q, P
+        ScoreMatrix r = swMatrix(P, Q);//Q, P
         printAdjMat(r);
         printSeqsArrows(r, P, Q);
+        System.out.println("best: " + swScore(P, Q));
+
+        String R = "KVLEFGY", S = "EQLLKALEFKL";
+        System.out.println(ScoringScheme.BLOSUM62 + ": " + swScore(R, S, ScoringScheme.BLOSUM62));
         //WE ASSUME ABSOLUTE MAX in matrix
+        if(Probe.ENABLED)
+            System.err.println(Probe.sink);
     }
 }
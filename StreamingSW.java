@@ -0,0 +1,126 @@
+import java.util.Arrays;
+
+//Smith-Waterman against a target that arrives in pieces, e.g. a read still
+//being basecalled. The query is fixed up front as the columns (with its
+//profile); every append() adds target residues as new rows, computed from
+//the one H row and E row kept from the previous call, so a chunk costs
+//chunk length x query length cells whatever came before it. The best score
+//and its end are current after every call, with the same row-major
+//first-max rule as swScore.
+//With keepDirections each row's arrows are kept (1 byte per cell, NONE
+//where H is 0) and traceback() is exactly traceback(swMatrix(target, query)).
+//Without them memory stays O(query + target) and traceback() finds the
+//start with swStart and re-fills just start..end: same score and ends, but
+//among equally good paths it may pick a different one.
+class StreamingSW {
+    static final int NEG = SmithWaterman.NEG;
+
+    final CharSequence query;
+    final ScoringScheme s;
+    final int n, open, ext;
+    final int[][] prof;
+    final int[] h, e;
+    final boolean keepDirections;
+    byte[] target = new byte[1024];
+    byte[] dir;//row-major, (n+1) per row, rows 1..m
+    int m;
+    int best, bestI, bestJ;
+
+    public StreamingSW(CharSequence query, ScoringScheme s, boolean keepDirections) {
+        this.query = query;
+        this.s = s;
+        this.n = query.length();
+        this.open = s.gapOpen;
+        this.ext = s.gapExtend;
+        this.prof = s.profile(query);
+        this.h = new int[n+1];
+        this.e = new int[n+1];
+        Arrays.fill(e, NEG);
+        this.keepDirections = keepDirections;
+        this.dir = keepDirections ? new byte[1024*(n+1)] : null;
+    }
+
+    public StreamingSW(CharSequence query) {
+        this(query, ScoringScheme.LINEAR, false);
+    }
+
+    //the next residues of the target
+    public void append(CharSequence chunk){
+        int len = chunk.length();
+        if(m + len > target.length)
+            target = Arrays.copyOf(target, Math.max(m + len, 2*target.length));
+        if(keepDirections && (long)(m + len + 1)*(n+1) > dir.length){
+            long need = Math.max((long)(m + len + 1)*(n+1), 2L*dir.length);
+            if(need > Integer.MAX_VALUE - 8)
+                throw new IllegalStateException("direction store full at " + m + " target residues");
+            dir = Arrays.copyOf(dir, (int)need);
+        }
+        for(int r=0; r<len; r++){
+            char c = chunk.charAt(r);
+            target[m++] = (byte)c;
+            int[] p = prof[s.code(c)];
+            int i = m, row = i*(n+1);
+            int diag = 0, left = 0, f = NEG;
+            for(int j=1; j<n+1; j++){
+                int up = h[j];
+                int eOpen = up - open, eExt = e[j] - ext;
+                int fOpen = left - open, fExt = f - ext;
+                int ej = Math.max(eOpen, eExt);
+                f = Math.max(fOpen, fExt);
+                int v = diag + p[j-1];
+                byte arrow = ScoreMatrix.UL;
+                if(ej > v){
+                    v = ej; arrow = ScoreMatrix.U;
+                }
+                if(f > v){
+                    v = f; arrow = ScoreMatrix.L;
+                }
+                if(v < 0) v = 0;
+                e[j] = ej;
+                diag = up;
+                h[j] = v;
+                left = v;
+                if(keepDirections){
+                    if(eExt > eOpen) arrow |= ScoreMatrix.E_EXT;
+                    if(fExt > fOpen) arrow |= ScoreMatrix.F_EXT;
+                    dir[row+j] = v > 0 ? arrow : ScoreMatrix.NONE;
+                }
+                if(v > best){
+                    best = v; bestI = i; bestJ = j;
+                }
+            }
+        }
+    }
+
+    //target residues so far
+    public int length(){
+        return this.m;
+    }
+
+    //the target so far; a view that later appends may leave stale
+    public Sequence target(){
+        return new Sequence(target, 0, m);
+    }
+
+    //best local score so far and its end (i in the target, j in the query)
+    public ScoreResult best(){
+        return new ScoreResult(best, bestI, bestJ);
+    }
+
+    //alignment for the current best; X is the target, Y the query
+    public Alignment traceback(){
+        if(best == 0)
+            return new Alignment(0, 0, 0, 0, 0, new int[0], 0);
+        Sequence X = target();
+        if(keepDirections){
+            byte[] d = dir;
+            int w = n+1;
+            return SmithWaterman.traceback((i, j) -> d[i*w+j], best, X, query, bestI, bestJ);
+        }
+        int[] st = SmithWaterman.swStart(X, query, s, bestI, bestJ, best);
+        Sequence wx = X.slice(st[0], bestI);
+        CharSequence wy = query.subSequence(st[1], bestJ);
+        Alignment a = SmithWaterman.traceback(SmithWaterman.swMatrix(wx, wy, s), wx, wy, wx.length(), wy.length());
+        return new Alignment(a.score, a.xStart + st[0], a.xEnd + st[0], a.yStart + st[1], a.yEnd + st[1], a.ops, a.matches);
+    }
+}
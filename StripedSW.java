@@ -0,0 +1,322 @@
+import java.util.Arrays;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+//Farrar's striped Smith-Waterman on the incubating Vector API, affine gaps
+//(javac/java need --add-modules jdk.incubator.vector).
+//The query (Y, the columns) is cut into seg = ceil(n/lanes) segments and
+//column j lives in lane j/seg of segment j%seg, so one vector holds cells
+//that never depend on each other within a row. The target (X, the rows) is
+//walked one residue at a time, so the best cell is the first one in
+//row-major order, same as swScore.
+//Scores start in 8-bit lanes and move to 16 then 32 bits when a row gets
+//close to the lane limit. JDK 17 has no saturating lane ops, so gap
+//subtraction is clamped at zero by hand and overflow is caught one row ahead.
+//Not thread safe: the profile and scratch rows are reused across align calls.
+class StripedSW {
+    private final int n;
+    private final ScoringScheme scheme;
+    private final int[][] profile;//[code][j], unstriped
+    private final int gapOpen, gapExtend, maxScore, padScore;
+
+    private byte[][] prof8;
+    private byte[] hLoad8, hStore8, e8;
+    private short[][] prof16;
+    private short[] hLoad16, hStore16, e16;
+    private int[][] prof32;
+    private int[] hLoad32, hStore32, e32;
+
+    public StripedSW(CharSequence query){
+        this(query, ScoringScheme.LINEAR);
+    }
+
+    public StripedSW(CharSequence query, ScoringScheme scheme){
+        this.n = query.length();
+        this.scheme = scheme;
+        this.profile = scheme.profile(query);
+        this.gapOpen = scheme.gapOpen;
+        this.gapExtend = scheme.gapExtend;
+        this.maxScore = scheme.maxScore;
+        this.padScore = Math.min(scheme.minScore, -1);
+    }
+
+    public static ScoreResult score(CharSequence X, CharSequence Y){
+        return new StripedSW(Y).align(X);
+    }
+
+    public static ScoreResult score(CharSequence X, CharSequence Y, ScoringScheme scheme){
+        return new StripedSW(Y, scheme).align(X);
+    }
+
+    //best local score of target (rows) against the query (columns)
+    public ScoreResult align(CharSequence target){
+        if(n == 0)
+            return new ScoreResult(0, 0, 0);
+        ScoreResult r = align8(target);
+        if(r == null)
+            r = align16(target);
+        if(r == null)
+            r = align32(target);
+        return r;
+    }
+
+    private int segLen(int lanes){
+        return (n + lanes - 1)/lanes;
+    }
+
+    //score at striped slot k; slots past the query end get a negative pad
+    //so they can never beat a real cell
+    private int striped(int[] row, int k, int seg, int lanes){
+        int j = (k % lanes)*seg + k/lanes;
+        return j < n ? row[j] : padScore;
+    }
+
+    //do lanes holding min..max take every profile score, the pad and both
+    //gap costs; if not, the narrower lanes are skipped for wider ones
+    private boolean fits(int min, int max){
+        return padScore >= min && maxScore <= max && gapOpen <= max && gapExtend <= max;
+    }
+
+    //8-bit lanes; null if the scheme does not fit a byte or as soon as the
+    //next row could overflow one
+    private ScoreResult align8(CharSequence target){
+        if(!fits(Byte.MIN_VALUE, Byte.MAX_VALUE))
+            return null;
+        VectorSpecies<Byte> sp = ByteVector.SPECIES_PREFERRED;
+        int lanes = sp.length(), seg = segLen(lanes);
+        if(prof8 == null){
+            prof8 = new byte[profile.length][];
+            for(int c=0; c<profile.length; c++){
+                prof8[c] = new byte[seg*lanes];
+                for(int k=0; k<seg*lanes; k++)
+                    prof8[c][k] = (byte)striped(profile[c], k, seg, lanes);
+            }
+            hLoad8 = new byte[seg*lanes]; hStore8 = new byte[seg*lanes]; e8 = new byte[seg*lanes];
+        }
+        byte[] hLoad = hLoad8, hStore = hStore8, e = e8, t;
+        Arrays.fill(hStore, (byte)0);
+        Arrays.fill(e, (byte)0);
+        ByteVector zero = ByteVector.zero(sp);
+        ByteVector vOpen = ByteVector.broadcast(sp, (byte)gapOpen);
+        ByteVector vExt = ByteVector.broadcast(sp, (byte)gapExtend);
+        int limit = Byte.MAX_VALUE - maxScore;
+        int best = 0, bestI = 0, bestJ = 0;
+
+        for(int i=1; i<=target.length(); i++){
+            byte[] p = prof8[scheme.code(target.charAt(i-1))];
+            ByteVector vF = zero, vMax = zero;
+            ByteVector vH = ByteVector.fromArray(sp, hStore, (seg-1)*lanes).unslice(1);
+            t = hLoad; hLoad = hStore; hStore = t;
+
+            for(int s=0; s<seg; s++){
+                int o = s*lanes;
+                vH = vH.add(ByteVector.fromArray(sp, p, o));
+                ByteVector vE = ByteVector.fromArray(sp, e, o);
+                vH = vH.max(vE).max(vF).max(zero);
+                vMax = vMax.max(vH);
+                vH.intoArray(hStore, o);
+                ByteVector vHg = vH.sub(vOpen);
+                vE.sub(vExt).max(vHg).max(zero).intoArray(e, o);
+                vF = vF.sub(vExt).max(vHg).max(zero);
+                vH = ByteVector.fromArray(sp, hLoad, o);
+            }
+
+            //lazy F: carry F across segment boundaries until it stops mattering
+            //(where F raises H, the new H opens a gap of its own, cheaper than
+            //extending when gapExtend > gapOpen; elsewhere the first pass
+            //already opened one from the same H)
+            vF = vF.unslice(1);
+            int s = 0;
+            vH = ByteVector.fromArray(sp, hStore, 0);
+            while(vF.compare(VectorOperators.GT, vH.sub(vOpen).max(zero)).anyTrue()){
+                int o = s*lanes;
+                VectorMask<Byte> raised = vF.compare(VectorOperators.GT, vH);
+                vH = vH.max(vF);
+                vMax = vMax.max(vH);
+                vH.intoArray(hStore, o);
+                ByteVector.fromArray(sp, e, o).max(vH.sub(vOpen)).intoArray(e, o);
+                vF = vF.sub(vExt).max(zero.blend(vH.sub(vOpen), raised)).max(zero);
+                if(++s == seg){
+                    s = 0;
+                    vF = vF.unslice(1);
+                }
+                vH = ByteVector.fromArray(sp, hStore, s*lanes);
+            }
+
+            int rowMax = vMax.reduceLanes(VectorOperators.MAX);
+            if(rowMax > best){
+                best = rowMax; bestI = i;
+                for(int j=0; j<n; j++)
+                    if(hStore[(j % seg)*lanes + j/seg] == best){
+                        bestJ = j+1;
+                        break;
+                    }
+            }
+            if(rowMax > limit)
+                return null;
+        }
+        return new ScoreResult(best, bestI, bestJ);
+    }
+
+    //16-bit lanes; null if the scheme does not fit a short or as soon as
+    //the next row could overflow one
+    private ScoreResult align16(CharSequence target){
+        if(!fits(Short.MIN_VALUE, Short.MAX_VALUE))
+            return null;
+        VectorSpecies<Short> sp = ShortVector.SPECIES_PREFERRED;
+        int lanes = sp.length(), seg = segLen(lanes);
+        if(prof16 == null){
+            prof16 = new short[profile.length][];
+            for(int c=0; c<profile.length; c++){
+                prof16[c] = new short[seg*lanes];
+                for(int k=0; k<seg*lanes; k++)
+                    prof16[c][k] = (short)striped(profile[c], k, seg, lanes);
+            }
+            hLoad16 = new short[seg*lanes]; hStore16 = new short[seg*lanes]; e16 = new short[seg*lanes];
+        }
+        short[] hLoad = hLoad16, hStore = hStore16, e = e16, t;
+        Arrays.fill(hStore, (short)0);
+        Arrays.fill(e, (short)0);
+        ShortVector zero = ShortVector.zero(sp);
+        ShortVector vOpen = ShortVector.broadcast(sp, (short)gapOpen);
+        ShortVector vExt = ShortVector.broadcast(sp, (short)gapExtend);
+        int limit = Short.MAX_VALUE - maxScore;
+        int best = 0, bestI = 0, bestJ = 0;
+
+        for(int i=1; i<=target.length(); i++){
+            short[] p = prof16[scheme.code(target.charAt(i-1))];
+            ShortVector vF = zero, vMax = zero;
+            ShortVector vH = ShortVector.fromArray(sp, hStore, (seg-1)*lanes).unslice(1);
+            t = hLoad; hLoad = hStore; hStore = t;
+
+            for(int s=0; s<seg; s++){
+                int o = s*lanes;
+                vH = vH.add(ShortVector.fromArray(sp, p, o));
+                ShortVector vE = ShortVector.fromArray(sp, e, o);
+                vH = vH.max(vE).max(vF).max(zero);
+                vMax = vMax.max(vH);
+                vH.intoArray(hStore, o);
+                ShortVector vHg = vH.sub(vOpen);
+                vE.sub(vExt).max(vHg).max(zero).intoArray(e, o);
+                vF = vF.sub(vExt).max(vHg).max(zero);
+                vH = ShortVector.fromArray(sp, hLoad, o);
+            }
+
+            //lazy F: carry F across segment boundaries until it stops mattering
+            //(where F raises H, the new H opens a gap of its own, cheaper than
+            //extending when gapExtend > gapOpen; elsewhere the first pass
+            //already opened one from the same H)
+            vF = vF.unslice(1);
+            int s = 0;
+            vH = ShortVector.fromArray(sp, hStore, 0);
+            while(vF.compare(VectorOperators.GT, vH.sub(vOpen).max(zero)).anyTrue()){
+                int o = s*lanes;
+                VectorMask<Short> raised = vF.compare(VectorOperators.GT, vH);
+                vH = vH.max(vF);
+                vMax = vMax.max(vH);
+                vH.intoArray(hStore, o);
+                ShortVector.fromArray(sp, e, o).max(vH.sub(vOpen)).intoArray(e, o);
+                vF = vF.sub(vExt).max(zero.blend(vH.sub(vOpen), raised)).max(zero);
+                if(++s == seg){
+                    s = 0;
+                    vF = vF.unslice(1);
+                }
+                vH = ShortVector.fromArray(sp, hStore, s*lanes);
+            }
+
+            int rowMax = vMax.reduceLanes(VectorOperators.MAX);
+            if(rowMax > best){
+                best = rowMax; bestI = i;
+                for(int j=0; j<n; j++)
+                    if(hStore[(j % seg)*lanes + j/seg] == best){
+                        bestJ = j+1;
+                        break;
+                    }
+            }
+            if(rowMax > limit)
+                return null;
+        }
+        return new ScoreResult(best, bestI, bestJ);
+    }
+
+    //32-bit lanes, the last resort; any scheme fits, gap costs being
+    //non-negative ints
+    private ScoreResult align32(CharSequence target){
+        VectorSpecies<Integer> sp = IntVector.SPECIES_PREFERRED;
+        int lanes = sp.length(), seg = segLen(lanes);
+        if(prof32 == null){
+            prof32 = new int[profile.length][];
+            for(int c=0; c<profile.length; c++){
+                prof32[c] = new int[seg*lanes];
+                for(int k=0; k<seg*lanes; k++)
+                    prof32[c][k] = striped(profile[c], k, seg, lanes);
+            }
+            hLoad32 = new int[seg*lanes]; hStore32 = new int[seg*lanes]; e32 = new int[seg*lanes];
+        }
+        int[] hLoad = hLoad32, hStore = hStore32, e = e32, t;
+        Arrays.fill(hStore, 0);
+        Arrays.fill(e, 0);
+        IntVector zero = IntVector.zero(sp);
+        IntVector vOpen = IntVector.broadcast(sp, gapOpen);
+        IntVector vExt = IntVector.broadcast(sp, gapExtend);
+        int best = 0, bestI = 0, bestJ = 0;
+
+        for(int i=1; i<=target.length(); i++){
+            int[] p = prof32[scheme.code(target.charAt(i-1))];
+            IntVector vF = zero, vMax = zero;
+            IntVector vH = IntVector.fromArray(sp, hStore, (seg-1)*lanes).unslice(1);
+            t = hLoad; hLoad = hStore; hStore = t;
+
+            for(int s=0; s<seg; s++){
+                int o = s*lanes;
+                vH = vH.add(IntVector.fromArray(sp, p, o));
+                IntVector vE = IntVector.fromArray(sp, e, o);
+                vH = vH.max(vE).max(vF).max(zero);
+                vMax = vMax.max(vH);
+                vH.intoArray(hStore, o);
+                IntVector vHg = vH.sub(vOpen);
+                vE.sub(vExt).max(vHg).max(zero).intoArray(e, o);
+                vF = vF.sub(vExt).max(vHg).max(zero);
+                vH = IntVector.fromArray(sp, hLoad, o);
+            }
+
+            //lazy F: carry F across segment boundaries until it stops mattering
+            //(where F raises H, the new H opens a gap of its own, cheaper than
+            //extending when gapExtend > gapOpen; elsewhere the first pass
+            //already opened one from the same H)
+            vF = vF.unslice(1);
+            int s = 0;
+            vH = IntVector.fromArray(sp, hStore, 0);
+            while(vF.compare(VectorOperators.GT, vH.sub(vOpen).max(zero)).anyTrue()){
+                int o = s*lanes;
+                VectorMask<Integer> raised = vF.compare(VectorOperators.GT, vH);
+                vH = vH.max(vF);
+                vMax = vMax.max(vH);
+                vH.intoArray(hStore, o);
+                IntVector.fromArray(sp, e, o).max(vH.sub(vOpen)).intoArray(e, o);
+                vF = vF.sub(vExt).max(zero.blend(vH.sub(vOpen), raised)).max(zero);
+                if(++s == seg){
+                    s = 0;
+                    vF = vF.unslice(1);
+                }
+                vH = IntVector.fromArray(sp, hStore, s*lanes);
+            }
+
+            int rowMax = vMax.reduceLanes(VectorOperators.MAX);
+            if(rowMax > best){
+                best = rowMax; bestI = i;
+                for(int j=0; j<n; j++)
+                    if(hStore[(j % seg)*lanes + j/seg] == best){
+                        bestJ = j+1;
+                        break;
+                    }
+            }
+        }
+        return new ScoreResult(best, bestI, bestJ);
+    }
+}
@@ -0,0 +1,179 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+//Top-N non-intersecting local alignments of one pair (Waterman-Eggert).
+//One full Gotoh fill keeps H, E and F for every cell. After each traceback
+//the cells on the path are marked used (H = 0, no gap through them) and
+//only what that can change is recomputed ("declumping"): row by row from
+//the top of the path, starting at the leftmost cell that changed in the
+//row above or is used, and going right while cells keep changing or are
+//still in reach of a change above. Scores only ever drop, so a row's
+//remembered max stays valid unless its own max cell changed, and the next
+//best is found from the per-row maxima without rescanning the matrix.
+//Cells, arrows and tie-breaks are those of swMatrix, so the first
+//alignment is exactly traceback(swMatrix(X, Y, s)).
+class WatermanEggert {
+    static final int NEG = SmithWaterman.NEG;
+    static final byte USED = 16;//dir bit: cell lies on an alignment already reported
+
+    final CharSequence X, Y;
+    final int m, n, cols, open, ext;
+    final int[][] prof;
+    final int[] xc;//code of X[i-1]
+    final ScoreMatrix mat;
+    final int[] h, e, f;
+    final byte[] dir;
+    final int[] rowBest, rowArg;//max of each row and its first column
+    long cells;
+
+    public WatermanEggert(CharSequence X, CharSequence Y, ScoringScheme s) {
+        this.X = X;
+        this.Y = Y;
+        this.m = X.length();
+        this.n = Y.length();
+        this.cols = n+1;
+        this.open = s.gapOpen;
+        this.ext = s.gapExtend;
+        this.prof = s.profile(Y);
+        this.xc = new int[m+1];
+        for(int i=1; i<=m; i++)
+            xc[i] = s.code(X.charAt(i-1));
+        this.mat = new ScoreMatrix(m+1, n+1);
+        this.h = mat.score;
+        this.dir = mat.dir;
+        this.e = new int[h.length];
+        this.f = new int[h.length];
+        Arrays.fill(e, NEG);
+        Arrays.fill(f, NEG);
+        this.rowBest = new int[m+1];
+        this.rowArg = new int[m+1];
+        for(int i=1; i<=m; i++){
+            for(int j=1; j<=n; j++)
+                cell(i, j);
+            rescan(i);
+        }
+    }
+
+    //up to count alignments scoring at least minScore, best first
+    public static List<Alignment> align(CharSequence X, CharSequence Y, ScoringScheme s, int count, int minScore){
+        WatermanEggert we = new WatermanEggert(X, Y, s);
+        List<Alignment> res = new ArrayList<>();
+        Alignment a;
+        while(res.size() < count && (a = we.next(minScore)) != null)
+            res.add(a);
+        return res;
+    }
+
+    //next best alignment not sharing a cell with any reported one, null if
+    //none scores minScore (and above 0)
+    public Alignment next(int minScore){
+        int bi = 0;
+        for(int i=1; i<=m; i++)
+            if(rowBest[i] > rowBest[bi])
+                bi = i;
+        if(rowBest[bi] == 0 || rowBest[bi] < minScore)
+            return null;
+        Alignment a = SmithWaterman.traceback(mat, X, Y, bi, rowArg[bi]);
+        declump(a);
+        return a;
+    }
+
+    //cells filled so far, the first full fill included
+    public long cells(){
+        return this.cells;
+    }
+
+    //marks the path of a used and recomputes what it affects
+    private void declump(Alignment a){
+        int top = a.xStart, bottom = a.xEnd;
+        int[] usedLo = new int[bottom-top+1], usedHi = new int[bottom-top+1];
+        Arrays.fill(usedLo, Integer.MAX_VALUE);
+        Arrays.fill(usedHi, -1);
+        int i = a.xStart, j = a.yStart;
+        for(int op : a.ops){
+            for(int run=op>>>2; run>0; run--){
+                switch(op & 3){
+                    case Alignment.INS: j++; break;
+                    case Alignment.DEL: i++; break;
+                    default: i++; j++;
+                }
+                dir[i*cols+j] |= USED;
+                usedLo[i-top] = Math.min(usedLo[i-top], j);
+                usedHi[i-top] = Math.max(usedHi[i-top], j);
+            }
+        }
+
+        int pl = Integer.MAX_VALUE, ph = -1;//columns that changed in the row above
+        for(i=top; i<=m; i++){
+            boolean path = i <= bottom;
+            int from = Math.min(pl, path ? usedLo[i-top] : Integer.MAX_VALUE);
+            int to = Math.max(ph < 0 ? -1 : ph+1, path ? usedHi[i-top] : -1);
+            int cl = Integer.MAX_VALUE, ch = -1;
+            boolean lostMax = false;
+            for(j=Math.max(from, 1); j<=n && from <= to; j++){
+                if(cell(i, j)){
+                    cl = Math.min(cl, j);
+                    ch = j;
+                    lostMax |= j == rowArg[i];
+                }
+                else if(j >= to)
+                    break;
+            }
+            if(lostMax)
+                rescan(i);
+            pl = cl;
+            ph = ch;
+            if(ch < 0 && i >= bottom)
+                break;
+        }
+    }
+
+    //(re)computes cell (i, j) from its three neighbours, true if H, E or F changed
+    private boolean cell(int i, int j){
+        int k = i*cols + j, up = k - cols;
+        int hv, ev, fv;
+        byte arrow;
+        cells++;
+        if((dir[k] & USED) != 0){
+            hv = 0; ev = NEG; fv = NEG; arrow = USED;
+        }
+        else {
+            int prevDiag = h[up-1] + prof[xc[i]][j-1];
+            int eOpen = h[up] - open, eExt = e[up] - ext;
+            int fOpen = h[k-1] - open, fExt = f[k-1] - ext;
+            ev = Math.max(eOpen, eExt);
+            fv = Math.max(fOpen, fExt);
+            int max;
+            if(prevDiag >= ev && prevDiag >= fv){
+                max = prevDiag; arrow = ScoreMatrix.UL;
+            }
+            else if(ev >= fv){
+                max = ev; arrow = ScoreMatrix.U;
+            }
+            else {
+                max = fv; arrow = ScoreMatrix.L;
+            }
+            if(eExt > eOpen) arrow |= ScoreMatrix.E_EXT;
+            if(fExt > fOpen) arrow |= ScoreMatrix.F_EXT;
+            hv = max < 0 ? 0 : max;
+        }
+        dir[k] = arrow;
+        if(hv == h[k] && ev == e[k] && fv == f[k])
+            return false;
+        h[k] = hv;
+        e[k] = ev;
+        f[k] = fv;
+        return true;
+    }
+
+    private void rescan(int i){
+        int base = i*cols, best = 0, arg = 0;
+        for(int j=1; j<=n; j++)
+            if(h[base+j] > best){
+                best = h[base+j]; arg = j;
+            }
+        rowBest[i] = best;
+        rowArg[i] = arg;
+    }
+}
@@ -0,0 +1,187 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+//Tiled anti-diagonal wavefront for one big pair. The matrix is cut into
+//tile x tile blocks; block (bi, bj) only needs the bottom row of (bi-1, bj),
+//the right column of (bi, bj-1) and one corner, so every block on the same
+//block diagonal runs in parallel on a ForkJoinPool, one diagonal at a time.
+//Score-only mode keeps one boundary row per block column and one boundary
+//column per block row, O(m + n) memory; matrix mode also writes every cell
+//into a ScoreMatrix. Cells, arrows and the best cell (row-major first) are
+//identical to swMatrix/swScore. Gaps must be linear (gapOpen == gapExtend);
+//tiles read query-profile rows like swScore, X coded once up front.
+class WavefrontSW {
+    static final int DEFAULT_TILE = 512;
+
+    public static ScoreResult score(CharSequence X, CharSequence Y){
+        return score(X, Y, ScoringScheme.LINEAR);
+    }
+
+    public static ScoreResult score(CharSequence X, CharSequence Y, ScoringScheme s){
+        return score(X, Y, s, DEFAULT_TILE, Runtime.getRuntime().availableProcessors());
+    }
+
+    public static ScoreResult score(CharSequence X, CharSequence Y, int tile, int parallelism){
+        return score(X, Y, ScoringScheme.LINEAR, tile, parallelism);
+    }
+
+    public static ScoreResult score(CharSequence X, CharSequence Y, ScoringScheme s, int tile, int parallelism){
+        return run(X, Y, s, tile, parallelism, null);
+    }
+
+    public static ScoreMatrix matrix(CharSequence X, CharSequence Y, int tile, int parallelism){
+        return matrix(X, Y, ScoringScheme.LINEAR, tile, parallelism);
+    }
+
+    public static ScoreMatrix matrix(CharSequence X, CharSequence Y, ScoringScheme s, int tile, int parallelism){
+        ScoreMatrix res = new ScoreMatrix(X.length()+1, Y.length()+1);
+        run(X, Y, s, tile, parallelism, res);
+        return res;
+    }
+
+    private static ScoreResult run(CharSequence X, CharSequence Y, ScoringScheme s, int tile, int parallelism, ScoreMatrix out){
+        if(!s.isLinear())
+            throw new IllegalArgumentException("WavefrontSW needs linear gaps (gapOpen == gapExtend): " + s);
+        if(tile < 1)
+            throw new IllegalArgumentException("tile size must be positive: " + tile);
+        int m = X.length(), n = Y.length();
+        if(m == 0 || n == 0)
+            return new ScoreResult(0, 0, 0);
+
+        Wave w = new Wave(X, Y, s, tile, out);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(w);
+        }
+        finally {
+            pool.shutdown();
+        }
+
+        //row-major first among the per-tile bests
+        int best = 0, bestI = 0, bestJ = 0;
+        for(int t=0; t<w.bestScore.length; t++){
+            int v = w.bestScore[t], i = w.bestI[t], j = w.bestJ[t];
+            if(v > best || (v == best && v > 0 && (i < bestI || (i == bestI && j < bestJ)))){
+                best = v; bestI = i; bestJ = j;
+            }
+        }
+        return new ScoreResult(best, bestI, bestJ);
+    }
+
+    //drives the block diagonals; each invokeAll is the barrier between them
+    private static class Wave extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        final int m, n, gap;
+        final int[] xc;//code of X[i-1]
+        final int[][] prof;//s.profile(Y)
+        final int tile, rowsOfTiles, colsOfTiles;
+        final ScoreMatrix out;
+        final int[][] top;//[bj] bottom row of the last block above, H[r0][c0+1..c1]
+        final int[][] left;//[bi] corner then right column of the last block to the left, H[r0..r1][c0]
+        final int[] bestScore, bestI, bestJ;
+
+        Wave(CharSequence X, CharSequence Y, ScoringScheme s, int tile, ScoreMatrix out){
+            this.m = X.length();
+            this.n = Y.length();
+            this.gap = -s.gapOpen;
+            this.xc = new int[m+1];
+            for(int i=1; i<=m; i++)
+                xc[i] = s.code(X.charAt(i-1));
+            this.prof = s.profile(Y);
+            this.tile = tile;
+            this.out = out;
+            this.rowsOfTiles = (m + tile - 1)/tile;
+            this.colsOfTiles = (n + tile - 1)/tile;
+            this.top = new int[colsOfTiles][tile];
+            this.left = new int[rowsOfTiles][tile+1];
+            this.bestScore = new int[rowsOfTiles*colsOfTiles];
+            this.bestI = new int[rowsOfTiles*colsOfTiles];
+            this.bestJ = new int[rowsOfTiles*colsOfTiles];
+        }
+
+        @Override
+        protected void compute(){
+            List<Tile> tasks = new ArrayList<>();
+            for(int d=0; d<rowsOfTiles+colsOfTiles-1; d++){
+                tasks.clear();
+                for(int bi=Math.max(0, d-colsOfTiles+1); bi<=Math.min(d, rowsOfTiles-1); bi++)
+                    tasks.add(new Tile(this, bi, d-bi));
+                invokeAll(tasks);
+            }
+        }
+    }
+
+    private static class Tile extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        final Wave w;
+        final int bi, bj;
+
+        Tile(Wave w, int bi, int bj){
+            this.w = w;
+            this.bi = bi;
+            this.bj = bj;
+        }
+
+        @Override
+        protected void compute(){
+            int gap = w.gap;
+            int r0 = bi*w.tile, r1 = Math.min(r0+w.tile, w.m);
+            int c0 = bj*w.tile, c1 = Math.min(c0+w.tile, w.n);
+            int width = c1-c0;
+            int[] up = w.top[bj], lf = w.left[bi];
+            ScoreMatrix out = w.out;
+
+            int topRight = up[width-1];
+            int[] prev = new int[width+1], curr = new int[width+1], tmp;
+            prev[0] = lf[0];
+            System.arraycopy(up, 0, prev, 1, width);
+            int best = 0, bestI = 0, bestJ = 0;
+
+            for(int r=1; r<=r1-r0; r++){
+                int i = r0+r;
+                int[] p = w.prof[w.xc[i]];
+                curr[0] = lf[r];
+                for(int c=1; c<=width; c++){
+                    int j = c0+c;
+                    int prevDiag = prev[c-1] + p[j-1];
+                    int prevRow = prev[c] + gap;
+                    int prevCol = curr[c-1] + gap;
+                    int max;
+                    byte arrow;
+                    if(prevDiag >= prevRow && prevDiag >= prevCol){
+                        max = prevDiag; arrow = ScoreMatrix.UL;
+                    }
+                    else if(prevRow >= prevCol){
+                        max = prevRow; arrow = ScoreMatrix.U;
+                    }
+                    else {
+                        max = prevCol; arrow = ScoreMatrix.L;
+                    }
+                    if(max < 0) max = 0;
+                    curr[c] = max;
+                    if(out != null){
+                        out.score[i*out.cols + j] = max;
+                        out.dir[i*out.cols + j] = arrow;
+                    }
+                    if(max > best){
+                        best = max; bestI = i; bestJ = j;
+                    }
+                }
+                lf[r] = curr[width];
+                tmp = prev; prev = curr; curr = tmp;
+            }
+
+            //hand the bottom row down and the right column (with its corner) over
+            System.arraycopy(prev, 1, up, 0, width);
+            lf[0] = topRight;
+            int t = bi*w.colsOfTiles + bj;
+            w.bestScore[t] = best;
+            w.bestI[t] = bestI;
+            w.bestJ[t] = bestJ;
+        }
+    }
+}
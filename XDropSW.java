@@ -0,0 +1,187 @@
+import java.util.Arrays;
+
+//Early-terminating variants of swScore for screening, where most pairs are
+//unrelated and a full fill is wasted.
+//extend: X-drop extension from an anchor cell (a seed). Scores are not
+//clamped at 0; a cell more than xdrop below the best seen so far is dead,
+//each row is only filled between the first and last live cell of the row
+//above (plus what a horizontal gap can still reach) and the extension stops
+//when a row has no live cell left.
+//score: full local Gotoh like swScore, but after each row an upper bound on
+//anything still to come is checked against minScore and the pair is
+//abandoned as soon as the bound falls short.
+//Both report cells filled and skipped so X / minScore can be tuned.
+class XDropSW {
+    static final int NEG = SmithWaterman.NEG;
+
+    //extends from (i0, j0) towards the ends of X and Y, or towards their
+    //starts if reverse. The best cell comes back in X/Y matrix coordinates:
+    //past the end of the extension going forward, at its start in reverse.
+    public static PrunedResult extend(CharSequence X, CharSequence Y, int i0, int j0, int xdrop,
+                                      ScoringScheme s, boolean reverse){
+        if(xdrop < 0)
+            throw new IllegalArgumentException("xdrop must be >= 0: " + xdrop);
+        int m = reverse ? i0 : X.length() - i0;
+        int n = reverse ? j0 : Y.length() - j0;
+        int open = s.gapOpen, ext = s.gapExtend;
+        //h/e indexed by column offset b from the anchor, grown as the live band moves right
+        int[] h = new int[Math.min(n, 255) + 1], e = new int[h.length];
+        Arrays.fill(h, NEG);
+        Arrays.fill(e, NEG);
+        //yc[b]: code of the Y residue at column offset b, coded as h grows
+        int[] yc = codes(Y, j0, reverse, s, new int[h.length], 1);
+        int best = 0, bestA = 0, bestB = 0;
+
+        //row 0: only gaps in X
+        h[0] = 0;
+        int lo = 0, hi = 1;//live columns of the row above: [lo, hi)
+        for(int b=1; b<=n && -open - (b-1)*ext >= -xdrop; b++){
+            if(b == h.length){
+                h = grow(h);
+                e = grow(e);
+                yc = codes(Y, j0, reverse, s, Arrays.copyOf(yc, h.length), b);
+            }
+            h[b] = -open - (b-1)*ext;
+            hi = b+1;
+        }
+        long cells = hi;
+
+        for(int a=1; a<=m && lo < hi; a++){
+            int[] row = s.matrix[s.code(X.charAt(reverse ? i0-a : i0+a-1))];
+            int diag = NEG, left = NEG, f = NEG;
+            int newLo = -1, newHi = 0, b = lo;
+            if(b == 0){
+                int ej = Math.max(h[0] - open, e[0] - ext);
+                int v = ej < best - xdrop ? NEG : ej;
+                diag = h[0];
+                e[0] = v == NEG ? NEG : ej;
+                h[0] = left = v;
+                if(v != NEG){
+                    newLo = 0;
+                    newHi = 1;
+                }
+                b = 1;
+            }
+            else
+                diag = h[b-1];
+            //past the old hi only a horizontal gap (or the diagonal at hi) can be alive
+            for(; b<=n && (b <= hi || f - ext >= best - xdrop || left - open >= best - xdrop); b++){
+                if(b == h.length){
+                    h = grow(h);
+                    e = grow(e);
+                    yc = codes(Y, j0, reverse, s, Arrays.copyOf(yc, h.length), b);
+                }
+                int up = h[b];
+                int ej = Math.max(up - open, e[b] - ext);
+                f = Math.max(left - open, f - ext);
+                int v = diag + row[yc[b]];
+                if(ej > v) v = ej;
+                if(f > v) v = f;
+                diag = up;
+                if(v < best - xdrop){
+                    v = NEG;
+                    ej = NEG;
+                }
+                else {
+                    if(newLo < 0)
+                        newLo = b;
+                    newHi = b+1;
+                    if(v > best){
+                        best = v; bestA = a; bestB = b;
+                    }
+                }
+                e[b] = ej;
+                h[b] = left = v;
+            }
+            cells += b - lo;
+            //everything right of the last filled cell has to read as dead next row
+            if(b < h.length){
+                h[b] = NEG;
+                e[b] = NEG;
+            }
+            if(newLo < 0)
+                break;
+            lo = newLo;
+            hi = newHi;
+        }
+
+        long total = (long)(m+1)*(n+1);
+        return reverse ? new PrunedResult(best, i0-bestA, j0-bestB, cells, total - cells, false)
+                       : new PrunedResult(best, i0+bestA, j0+bestB, cells, total - cells, false);
+    }
+
+    //fills yc[from..] with the codes of Y at those column offsets from j0
+    private static int[] codes(CharSequence Y, int j0, boolean reverse, ScoringScheme s, int[] yc, int from){
+        int n = reverse ? j0 : Y.length() - j0;
+        for(int b=from; b<yc.length && b<=n; b++)
+            yc[b] = s.code(Y.charAt(reverse ? j0-b : j0+b-1));
+        return yc;
+    }
+
+    private static int[] grow(int[] a){
+        int old = a.length;
+        a = Arrays.copyOf(a, 2*old);
+        Arrays.fill(a, old, a.length, NEG);
+        return a;
+    }
+
+    //swScore with a minimum-score cutoff. From (i, j) on, every diagonal step
+    //uses up one residue of X and one of Y and gains at most that residue's
+    //best score, gaps only cost; so with restX[i], restY[j] the sums of those
+    //bests over X[i..], Y[j..], nothing after row i can beat
+    //max_j(H[i][j] + min(restX[i], restY[j])). Once that and the best so far
+    //are both below minScore the rest of the matrix is skipped
+    public static PrunedResult score(CharSequence X, CharSequence Y, ScoringScheme s, int minScore){
+        int m = X.length();
+        int n = Y.length();
+        int[][] prof = s.profile(Y);
+        int open = s.gapOpen, ext = s.gapExtend;
+        long[] restX = rest(X, s), restY = rest(Y, s);
+        int[] h = new int[n+1], e = new int[n+1];
+        Arrays.fill(e, NEG);
+        int best = 0, bestI = 0, bestJ = 0;
+
+        for(int i=1; i<m+1; i++){
+            int[] p = prof[s.code(X.charAt(i-1))];
+            int diag = 0, left = 0, f = NEG;
+            long bound = Math.min(restX[i], restY[0]);
+            for(int j=1; j<n+1; j++){
+                int up = h[j];
+                int ej = Math.max(up - open, e[j] - ext);
+                f = Math.max(left - open, f - ext);
+                int v = diag + p[j-1];
+                if(ej > v) v = ej;
+                if(f > v) v = f;
+                if(v < 0) v = 0;
+                e[j] = ej;
+                diag = up;
+                h[j] = v;
+                left = v;
+                if(v > best){
+                    best = v; bestI = i; bestJ = j;
+                }
+                long reach = v + Math.min(restX[i], restY[j]);
+                if(reach > bound)
+                    bound = reach;
+            }
+            if(best < minScore && bound < minScore){
+                long cells = (long)i*n;
+                return new PrunedResult(best, bestI, bestJ, cells, (long)m*n - cells, true);
+            }
+        }
+
+        return new PrunedResult(best, bestI, bestJ, (long)m*n, 0, false);
+    }
+
+    //rest[k]: sum over S[k..] of each residue's best possible (non-negative) score
+    private static long[] rest(CharSequence S, ScoringScheme s){
+        int[] top = new int[s.size()];
+        for(int c=0; c<top.length; c++)
+            for(int v : s.matrix[c])
+                top[c] = Math.max(top[c], v);
+        long[] r = new long[S.length()+1];
+        for(int k=S.length()-1; k>=0; k--)
+            r[k] = r[k+1] + top[s.code(S.charAt(k))];
+        return r;
+    }
+}
@@ -0,0 +1,153 @@
+package sw.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+//The aligners live in the default package, which code in a named package
+//cannot name (and JMH will not run default-package benchmarks). Each entry
+//point is looked up once through privateLookupIn and kept in a static final
+//MethodHandle, which the JIT treats like a direct call.
+final class Bridge {
+    static final Class<?> SMITH_WATERMAN = type("SmithWaterman");
+    static final Class<?> SCHEME = type("ScoringScheme");
+    static final Class<?> MATRIX = type("ScoreMatrix");
+    static final Class<?> RESULT = type("Result");
+    static final Class<?> ALIGNMENT = type("Alignment");
+    static final Class<?> DIRECTIONS = type("Directions");
+    static final Class<?> STORE = type("DirectionStore");
+
+    private static final MethodHandle NAMED = find(SCHEME, "named", SCHEME, String.class);
+    private static final MethodHandle SW = find(SMITH_WATERMAN, "sw", RESULT.arrayType().arrayType(), CharSequence.class, CharSequence.class);
+    private static final MethodHandle PRINT_ARROWS = find(SMITH_WATERMAN, "printSeqsArrows", void.class, RESULT.arrayType().arrayType(), CharSequence.class, CharSequence.class);
+    private static final MethodHandle SW_SCORE = find(SMITH_WATERMAN, "swScore", type("ScoreResult"), CharSequence.class, CharSequence.class, SCHEME);
+    private static final MethodHandle SW_MATRIX = find(SMITH_WATERMAN, "swMatrix", MATRIX, CharSequence.class, CharSequence.class, SCHEME);
+    private static final MethodHandle TRACEBACK = find(SMITH_WATERMAN, "traceback", ALIGNMENT, MATRIX, CharSequence.class, CharSequence.class);
+    private static final MethodHandle WALK = find(SMITH_WATERMAN, "traceback", ALIGNMENT, DIRECTIONS, int.class, CharSequence.class, CharSequence.class, int.class, int.class);
+    private static final MethodHandle SW_ALIGN = find(SMITH_WATERMAN, "swAlign", ALIGNMENT, CharSequence.class, CharSequence.class, SCHEME, STORE);
+    private static final MethodHandle STORE_OF = find(STORE, "of", STORE, CharSequence.class, CharSequence.class, SCHEME, java.nio.file.Path.class);
+    private static final MethodHandle SCORE = getter(ALIGNMENT, "score", int.class);
+    private static final MethodHandle X_END = getter(ALIGNMENT, "xEnd", int.class);
+    private static final MethodHandle Y_END = getter(ALIGNMENT, "yEnd", int.class);
+
+    private Bridge(){}
+
+    private static Class<?> type(String name){
+        try {
+            return Class.forName(name);
+        }
+        catch(ClassNotFoundException ex){
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+
+    private static MethodHandle find(Class<?> owner, String name, Class<?> ret, Class<?>... params){
+        try {
+            return MethodHandles.privateLookupIn(owner, MethodHandles.lookup()).findStatic(owner, name, MethodType.methodType(ret, params));
+        }
+        catch(ReflectiveOperationException ex){
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+
+    private static MethodHandle getter(Class<?> owner, String name, Class<?> type){
+        try {
+            return MethodHandles.privateLookupIn(owner, MethodHandles.lookup()).findGetter(owner, name, type);
+        }
+        catch(ReflectiveOperationException ex){
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable t){
+        if(t instanceof RuntimeException)
+            return (RuntimeException)t;
+        if(t instanceof Error)
+            throw (Error)t;
+        return new IllegalStateException(t);
+    }
+
+    //ScoringScheme.named: linear, blosum62, pam250
+    static Object scheme(String name){
+        try {
+            return NAMED.invoke(name);
+        }
+        catch(Throwable t){
+            throw rethrow(t);
+        }
+    }
+
+    static Object sw(CharSequence x, CharSequence y){
+        try {
+            return SW.invoke(x, y);
+        }
+        catch(Throwable t){
+            throw rethrow(t);
+        }
+    }
+
+    static void printSeqsArrows(Object matrix, CharSequence x, CharSequence y){
+        try {
+            PRINT_ARROWS.invoke(matrix, x, y);
+        }
+        catch(Throwable t){
+            throw rethrow(t);
+        }
+    }
+
+    static Object swScore(CharSequence x, CharSequence y, Object scheme){
+        try {
+            return SW_SCORE.invoke(x, y, scheme);
+        }
+        catch(Throwable t){
+            throw rethrow(t);
+        }
+    }
+
+    static Object swMatrix(CharSequence x, CharSequence y, Object scheme){
+        try {
+            return SW_MATRIX.invoke(x, y, scheme);
+        }
+        catch(Throwable t){
+            throw rethrow(t);
+        }
+    }
+
+    static Object traceback(Object matrix, CharSequence x, CharSequence y){
+        try {
+            return TRACEBACK.invoke(matrix, x, y);
+        }
+        catch(Throwable t){
+            throw rethrow(t);
+        }
+    }
+
+    //the walk alone, from the end of an alignment already found over store
+    static Object traceback(Object store, Object alignment, CharSequence x, CharSequence y){
+        try {
+            return WALK.invoke(store, (int)SCORE.invoke(alignment), x, y, (int)X_END.invoke(alignment), (int)Y_END.invoke(alignment));
+        }
+        catch(Throwable t){
+            throw rethrow(t);
+        }
+    }
+
+    static Object swAlign(CharSequence x, CharSequence y, Object scheme, Object store){
+        try {
+            return SW_ALIGN.invoke(x, y, scheme, store);
+        }
+        catch(Throwable t){
+            throw rethrow(t);
+        }
+    }
+
+    //DirectionStore.of, mapped under dir
+    static AutoCloseable store(CharSequence x, CharSequence y, Object scheme, java.nio.file.Path dir){
+        try {
+            return (AutoCloseable)STORE_OF.invoke(x, y, scheme, dir);
+        }
+        catch(Throwable t){
+            throw rethrow(t);
+        }
+    }
+}
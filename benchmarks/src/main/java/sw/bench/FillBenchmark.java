@@ -0,0 +1,48 @@
+package sw.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+//Score-only fill (swScore, two rolling rows) over the whole size range;
+//the only engine here whose memory does not grow with length^2
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class FillBenchmark {
+    @Param({"100", "1000", "10000", "50000"})
+    int length;
+    @Param({"dna", "protein"})
+    String alphabet;
+    @Param({"random", "similar"})
+    String pair;
+
+    String x, y;
+    Object scheme;
+
+    @Setup
+    public void setup(){
+        String[] p = Pairs.make(alphabet, pair, length);
+        x = p[0];
+        y = p[1];
+        scheme = Pairs.scheme(alphabet);
+    }
+
+    @Benchmark
+    public Object swScore(){
+        return Bridge.swScore(x, y, scheme);
+    }
+}
@@ -0,0 +1,64 @@
+package sw.bench;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+//The original object-per-cell sw fill and its printSeqsArrows traceback,
+//as the reference the other engines are measured against. sw only knows
+//its hard-coded linear DNA scores, and its Result[][] limits it to short
+//pairs. printSeqsArrows prints, so System.out goes nowhere while it runs
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class LegacyBenchmark {
+    @Param({"100", "1000"})
+    int length;
+    @Param({"random", "similar"})
+    String pair;
+
+    String x, y;
+    Object matrix;
+    PrintStream out;
+
+    @Setup
+    public void setup(){
+        String[] p = Pairs.make("dna", pair, length);
+        x = p[0];
+        y = p[1];
+        matrix = Bridge.sw(x, y);
+        out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown
+    public void tearDown(){
+        System.setOut(out);
+    }
+
+    @Benchmark
+    public Object sw(){
+        return Bridge.sw(x, y);
+    }
+
+    @Benchmark
+    public void printSeqsArrows(){
+        Bridge.printSeqsArrows(matrix, x, y);
+    }
+}
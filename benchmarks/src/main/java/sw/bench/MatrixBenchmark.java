@@ -0,0 +1,56 @@
+package sw.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+//Full-matrix fill (swMatrix) and the traceback over it, timed apart: the
+//traceback runs on a matrix filled once in setup. Stops at 5000, where the
+//matrix is already 125 MB per fill
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class MatrixBenchmark {
+    @Param({"100", "1000", "5000"})
+    int length;
+    @Param({"dna", "protein"})
+    String alphabet;
+    @Param({"random", "similar"})
+    String pair;
+
+    String x, y;
+    Object scheme, matrix;
+
+    @Setup
+    public void setup(){
+        String[] p = Pairs.make(alphabet, pair, length);
+        x = p[0];
+        y = p[1];
+        scheme = Pairs.scheme(alphabet);
+        matrix = Bridge.swMatrix(x, y, scheme);
+    }
+
+    @Benchmark
+    public Object fill(){
+        return Bridge.swMatrix(x, y, scheme);
+    }
+
+    //best-cell scan plus the walk
+    @Benchmark
+    public Object traceback(){
+        return Bridge.traceback(matrix, x, y);
+    }
+}
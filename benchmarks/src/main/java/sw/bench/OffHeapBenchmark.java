@@ -0,0 +1,69 @@
+package sw.bench;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+//Traceback-capable alignment past what fits in a ScoreMatrix: swAlign with
+//arrows packed into a memory-mapped DirectionStore. fill is the whole
+//swAlign (its walk is O(m+n) next to the O(mn) fill); traceback walks the
+//store that setup filled
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class OffHeapBenchmark {
+    @Param({"10000", "50000"})
+    int length;
+    @Param({"dna", "protein"})
+    String alphabet;
+    @Param({"random", "similar"})
+    String pair;
+
+    String x, y;
+    Object scheme, alignment;
+    AutoCloseable store;
+    Path dir;
+
+    @Setup
+    public void setup() throws Exception {
+        String[] p = Pairs.make(alphabet, pair, length);
+        x = p[0];
+        y = p[1];
+        scheme = Pairs.scheme(alphabet);
+        dir = Files.createTempDirectory("swbench");
+        store = Bridge.store(x, y, scheme, dir);
+        alignment = Bridge.swAlign(x, y, scheme, store);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        store.close();
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public Object fill(){
+        return Bridge.swAlign(x, y, scheme, store);
+    }
+
+    @Benchmark
+    public Object traceback(){
+        return Bridge.traceback(store, alignment, x, y);
+    }
+}
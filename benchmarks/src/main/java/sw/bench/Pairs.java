@@ -0,0 +1,67 @@
+package sw.bench;
+
+import java.util.Random;
+
+//Fixed-seed inputs, so every run and every machine aligns the same pairs.
+//random: two independent sequences; similar: the second is the first with
+//about 10% substitutions and 1% short indels, the case where alignments run
+//long and traceback has real work to do.
+final class Pairs {
+    static final long SEED = 20240917L;
+    static final String DNA = "ACGT";
+    static final String PROTEIN = "ARNDCQEGHILKMFPSTWYV";
+
+    private Pairs(){}
+
+    static String alphabet(String name){
+        switch(name){
+            case "dna": return DNA;
+            case "protein": return PROTEIN;
+            default: throw new IllegalArgumentException("unknown alphabet " + name);
+        }
+    }
+
+    //scheme the repo uses for the alphabet: the +5/-4/-4 linear model for
+    //DNA, BLOSUM62 with NCBI gaps for protein
+    static Object scheme(String alphabet){
+        return Bridge.scheme(alphabet.equals("dna") ? "linear" : "blosum62");
+    }
+
+    //{x, y}, both length residues
+    static String[] make(String alphabet, String kind, int length){
+        String al = alphabet(alphabet);
+        Random r = new Random(SEED ^ (31L*length + al.length()));
+        String x = random(r, al, length);
+        switch(kind){
+            case "random": return new String[]{x, random(r, al, length)};
+            case "similar": return new String[]{x, mutate(r, al, x)};
+            default: throw new IllegalArgumentException("unknown pair kind " + kind);
+        }
+    }
+
+    private static String random(Random r, String al, int length){
+        char[] c = new char[length];
+        for(int i=0; i<length; i++)
+            c[i] = al.charAt(r.nextInt(al.length()));
+        return new String(c);
+    }
+
+    private static String mutate(Random r, String al, String x){
+        StringBuilder sb = new StringBuilder(x.length() + 16);
+        for(int i=0; i<x.length(); i++){
+            int roll = r.nextInt(200);
+            if(roll < 20)
+                sb.append(al.charAt(r.nextInt(al.length())));
+            else if(roll == 20)
+                i += r.nextInt(3);//deletion
+            else if(roll == 21)
+                sb.append(random(r, al, 1 + r.nextInt(3))).append(x.charAt(i));
+            else
+                sb.append(x.charAt(i));
+        }
+        sb.setLength(Math.min(sb.length(), x.length()));
+        while(sb.length() < x.length())
+            sb.append(al.charAt(r.nextInt(al.length())));
+        return sb.toString();
+    }
+}